@@ -1,9 +1,12 @@
 package com.cavetale.chess;
 
+import com.cavetale.chess.sql.SQLGameExport;
 import com.cavetale.chess.world.ChessPieceSetType;
 import com.cavetale.core.command.AbstractCommand;
 import com.cavetale.core.command.CommandArgCompleter;
 import com.cavetale.core.command.CommandWarn;
+import com.cavetale.core.playercache.PlayerCache;
+import java.io.File;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import static com.cavetale.chess.world.Worlds.worlds;
@@ -39,6 +42,13 @@ public final class ChessAdminCommand extends AbstractCommand<ChessPlugin> {
             .description("Set board pieces")
             .completers(CommandArgCompleter.enumLowerList(ChessPieceSetType.class))
             .playerCaller(this::pieces);
+        rootNode.addChild("export").arguments("<file> [player]")
+            .description("Export games to a PGN file")
+            .senderCaller(this::export);
+        rootNode.addChild("analyze").arguments("[count]")
+            .description("Analyze stored games")
+            .denyTabCompletion()
+            .senderCaller(this::analyze);
     }
 
     protected void reload(CommandSender sender) {
@@ -62,7 +72,7 @@ public final class ChessAdminCommand extends AbstractCommand<ChessPlugin> {
             throw new CommandWarn("There is no board nearby");
         }
         board.save();
-        player.sendMessage(text("Board saved to disk: " + board.getBoardId(), YELLOW));
+        player.sendMessage(text("Board save scheduled: " + board.getBoardId(), YELLOW));
     }
 
     protected boolean move(Player player, String[] args) {
@@ -113,4 +123,57 @@ public final class ChessAdminCommand extends AbstractCommand<ChessPlugin> {
         board.setPieceSet(type);
         return true;
     }
+
+    protected boolean export(CommandSender sender, String[] args) {
+        if (args.length != 1 && args.length != 2) return false;
+        final String fileName = args[0];
+        if (!fileName.matches("[A-Za-z0-9_-]+")) {
+            throw new CommandWarn("Invalid file name: " + fileName);
+        }
+        final String playerName;
+        if (args.length >= 2) {
+            // Players are stored by UUID, engines by name
+            final PlayerCache playerCache = PlayerCache.forArgument(args[1]);
+            playerName = playerCache != null
+                ? playerCache.uuid.toString()
+                : args[1];
+        } else {
+            playerName = null;
+        }
+        final File folder = new File(plugin.getDataFolder(), "exports");
+        folder.mkdirs();
+        final File file = new File(folder, fileName + ".pgn");
+        new SQLGameExport(file, playerName).async(export -> {
+                if (!export.isSuccess()) {
+                    sender.sendMessage(text("Export failed, see console: " + file
+                                            + (export.getFailure() != null ? " (" + export.getFailure() + ")" : ""), RED));
+                    return;
+                }
+                sender.sendMessage(text("Exported " + export.getCount() + " games to " + file
+                                        + (export.getErrors() > 0 ? " (" + export.getErrors() + " errors)" : ""),
+                                        YELLOW));
+            });
+        sender.sendMessage(text("Exporting games to " + file + "...", YELLOW));
+        return true;
+    }
+
+    protected boolean analyze(CommandSender sender, String[] args) {
+        if (args.length > 1) return false;
+        int count = 100;
+        if (args.length == 1) {
+            try {
+                count = Integer.parseInt(args[0]);
+            } catch (NumberFormatException nfe) {
+                count = 0;
+            }
+            if (count <= 0) throw new CommandWarn("Invalid count: " + args[0]);
+        }
+        final boolean started = plugin.getGameAnalyzer().backfill(count, queued -> {
+                sender.sendMessage(text("Queued " + queued + " games for analysis"
+                                        + ", " + plugin.getGameAnalyzer().getAnalyzedCount() + " analyzed so far", YELLOW));
+            });
+        if (!started) throw new CommandWarn("Analysis is disabled");
+        sender.sendMessage(text("Looking for up to " + count + " games to analyze...", YELLOW));
+        return true;
+    }
 }
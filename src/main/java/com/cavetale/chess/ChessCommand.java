@@ -1,13 +1,17 @@
 package com.cavetale.chess;
 
-import com.cavetale.chess.board.ChessGame;
-import com.cavetale.chess.sql.SQLChessGame;
+import com.cavetale.chess.spectate.ChessSnapshot;
+import com.cavetale.chess.spectate.ChessSpectators;
+import com.cavetale.chess.sql.SQLGameHistory;
 import com.cavetale.core.command.AbstractCommand;
+import com.cavetale.core.command.CommandArgCompleter;
+import com.cavetale.core.command.CommandWarn;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Material;
@@ -22,6 +26,7 @@ import static net.kyori.adventure.text.Component.text;
 import static net.kyori.adventure.text.Component.textOfChildren;
 import static net.kyori.adventure.text.JoinConfiguration.separator;
 import static net.kyori.adventure.text.event.ClickEvent.openUrl;
+import static net.kyori.adventure.text.event.ClickEvent.runCommand;
 import static net.kyori.adventure.text.event.HoverEvent.showText;
 import static net.kyori.adventure.text.format.NamedTextColor.*;
 import static net.kyori.adventure.text.format.TextDecoration.*;
@@ -29,6 +34,7 @@ import static net.kyori.adventure.text.format.TextDecoration.*;
 public final class ChessCommand extends AbstractCommand<ChessPlugin> {
     private static final ZoneId ZONE_ID = ZoneId.of("UTC-11");
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("EEE MMMM dd yyyy HH:mm:ss");
+    private static final int GAMES_PER_BOOK = 20;
 
     protected ChessCommand(final ChessPlugin plugin) {
         super(plugin, "chess");
@@ -36,60 +42,136 @@ public final class ChessCommand extends AbstractCommand<ChessPlugin> {
 
     @Override
     protected void onEnable() {
-        rootNode.addChild("mygames").denyTabCompletion()
+        rootNode.addChild("mygames").arguments("[page]")
             .description("List your games")
             .playerCaller(this::mygames);
+        rootNode.addChild("spectate").arguments("[board]")
+            .description("Watch a game from anywhere")
+            .completers(CommandArgCompleter.supplyList(this::getRunningBoardIds))
+            .playerCaller(this::spectate);
     }
 
-    private void mygames(Player player) {
-        final var uuid = player.getUniqueId();
-        plugin().getDatabase().find(SQLChessGame.class)
-            .eq("whiteName", uuid)
-            .or()
-            .eq("blackName", uuid)
-            .orderByDescending("startTime")
-            .findListAsync(list -> mygamesCallback(player, list));
+    private List<String> getRunningBoardIds() {
+        final List<String> result = new ArrayList<>();
+        for (ChessSnapshot snapshot : plugin().getSpectators().getPublisher().getAllLatest()) {
+            if (snapshot.isRunning()) result.add(snapshot.boardId());
+        }
+        result.sort(null);
+        return result;
+    }
+
+    /**
+     * Without arguments, stop watching or list the running games.
+     */
+    private boolean spectate(Player player, String[] args) {
+        if (args.length > 1) return false;
+        final ChessSpectators spectators = plugin().getSpectators();
+        if (args.length == 1) {
+            final ChessSnapshot snapshot = spectators.getPublisher().getLatest(args[0]);
+            if (snapshot == null) {
+                throw new CommandWarn("Board not found: " + args[0]);
+            }
+            spectators.spectate(player, snapshot.boardId());
+            player.sendMessage(text("Watching " + snapshot.boardId() + ". Type /chess spectate to stop", YELLOW));
+            return true;
+        }
+        if (spectators.stop(player)) {
+            player.sendMessage(text("Stopped watching", YELLOW));
+            return true;
+        }
+        final List<Component> lines = new ArrayList<>();
+        for (ChessSnapshot snapshot : spectators.getPublisher().getAllLatest()) {
+            if (!snapshot.isRunning()) continue;
+            final String command = "/chess spectate " + snapshot.boardId();
+            lines.add(textOfChildren(text(snapshot.boardId() + " ", YELLOW),
+                                     text(snapshot.whiteName() + " vs " + snapshot.blackName(), GRAY))
+                      .hoverEvent(showText(text(command, GRAY)))
+                      .clickEvent(runCommand(command)));
+        }
+        if (lines.isEmpty()) {
+            throw new CommandWarn("No games are running");
+        }
+        player.sendMessage(join(separator(newline()), lines));
+        return true;
     }
 
-    private void mygamesCallback(Player player, List<SQLChessGame> list) {
-        if (list.isEmpty()) {
+    /**
+     * The optional argument is the cursor of the page, see
+     * SQLGameHistory.
+     */
+    private boolean mygames(Player player, String[] args) {
+        if (args.length > 1) return false;
+        final Date before;
+        final int beforeId;
+        if (args.length == 1) {
+            // TIME:ID
+            final String[] cursor = args[0].split(":", 2);
+            try {
+                before = new Date(Long.parseLong(cursor[0]));
+                beforeId = cursor.length == 2 ? Integer.parseInt(cursor[1]) : 0;
+            } catch (NumberFormatException nfe) {
+                throw new CommandWarn("Invalid page: " + args[0]);
+            }
+        } else {
+            before = null;
+            beforeId = 0;
+        }
+        new SQLGameHistory(player.getUniqueId().toString(), before, beforeId, GAMES_PER_BOOK)
+            .async(history -> mygamesCallback(player, history));
+        return true;
+    }
+
+    private void mygamesCallback(Player player, SQLGameHistory history) {
+        if (history.getGames().isEmpty()) {
             player.sendMessage(text("No games to show", RED));
             return;
         }
         final List<Component> lines = new ArrayList<>();
-        for (var row : list) {
+        for (var row : history.getGames()) {
             final Instant instant = Instant.ofEpochMilli(row.getStartTime().getTime());
             final LocalDateTime localDateTime = LocalDateTime.ofInstant(instant, ZONE_ID);
             final int winner = row.getWinner();
             final List<Component> tooltip = new ArrayList<>();
-            final ChessGame game = new ChessGame();
-            game.loadPgnString(row.getPgn());
-            final Component names = textOfChildren(text(game.getWhiteName(), GRAY).decoration(BOLD, winner == 1),
+            final String whiteName = row.getWhiteDisplay();
+            final String blackName = row.getBlackDisplay();
+            final Component names = textOfChildren(text(whiteName, GRAY).decoration(BOLD, winner == 1),
                                                    text(" vs "),
-                                                   text(game.getBlackName(), DARK_GRAY).decoration(BOLD, winner == 2));
+                                                   text(blackName, DARK_GRAY).decoration(BOLD, winner == 2));
             tooltip.add(names);
             tooltip.add(text(localDateTime.format(DATE_TIME_FORMATTER), LIGHT_PURPLE, ITALIC));
+            final String url;
             if (row.getLichessUrl() != null) {
-                tooltip.add(text(row.getLichessUrl(), BLUE, ITALIC));
+                url = row.getLichessUrl();
+            } else if (plugin().getGameViewer().isEnabled()) {
+                url = plugin().getGameViewer().getGameUrl(row.getId());
+            } else {
+                url = null;
+            }
+            if (url != null) {
+                tooltip.add(text(url, BLUE, ITALIC));
             }
             if (winner == 0) {
                 tooltip.add(text("Draw", GOLD));
             } else if (winner == 1) {
-                tooltip.add(text(game.getWhiteName() + " (White) wins", GOLD));
+                tooltip.add(text(whiteName + " (White) wins", GOLD));
             } else if (winner == 2) {
-                tooltip.add(text(game.getBlackName() + " (Black) wins", GOLD));
+                tooltip.add(text(blackName + " (Black) wins", GOLD));
             }
             tooltip.add(text(toCamelCase(" ", List.of(row.getResult().split("_"))), GOLD));
-            tooltip.add(text(game.getMoveCount() + " moves", GOLD));
-            final var pgn = row.getPgn().split("\n");
-            tooltip.add(text(pgn[pgn.length - 1], GRAY));
-            if (row.getLichessUrl() != null) {
+            tooltip.add(text(row.getMoves() + " moves", GOLD));
+            if (url != null) {
                 lines.add(names.hoverEvent(showText(join(separator(newline()), tooltip)))
-                          .clickEvent(openUrl(row.getLichessUrl())));
+                          .clickEvent(openUrl(url)));
             } else {
                 lines.add(names.hoverEvent(showText(join(separator(newline()), tooltip))));
             }
         }
+        if (history.getNext() != null) {
+            final String command = "/chess mygames " + history.getNext().getTime() + ":" + history.getNextId();
+            lines.add(text("Older games", BLUE, UNDERLINED)
+                      .hoverEvent(showText(text(command, GRAY)))
+                      .clickEvent(runCommand(command)));
+        }
         final List<Component> pages = new ArrayList<>();
         final int linesPerPage = 4;
         for (int offset = 0; offset < lines.size(); offset += linesPerPage) {
@@ -1,9 +1,27 @@
 package com.cavetale.chess;
 
+import com.cavetale.chess.ai.ChessEndgameTablebase;
+import com.cavetale.chess.ai.ChessOpeningBook;
+import com.cavetale.chess.ai.ChessSearch;
+import com.cavetale.chess.ai.DummyWeights;
+import com.cavetale.chess.net.ChessFileBus;
+import com.cavetale.chess.net.ChessGameViewer;
+import com.cavetale.chess.net.ChessReplication;
+import com.cavetale.chess.net.LichessImport;
+import com.cavetale.chess.spectate.ChessSpectators;
 import com.cavetale.chess.sql.SQLChessGame;
+import com.cavetale.chess.sql.SQLChessGameSummary;
+import com.cavetale.chess.sql.SQLGameAnalysis;
+import com.cavetale.chess.sql.SQLGameAnalyzer;
+import com.cavetale.chess.sql.SQLGameQueue;
 import com.cavetale.chess.world.Worlds;
 import com.winthier.sql.SQLDatabase;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
 import lombok.Getter;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
 @Getter
@@ -13,6 +31,18 @@ public final class ChessPlugin extends JavaPlugin {
     protected final ChessAdminCommand chessAdminCommand = new ChessAdminCommand(this);
     protected final Worlds worlds = new Worlds();
     protected SQLDatabase database;
+    protected final SQLGameQueue gameQueue = new SQLGameQueue();
+    protected final SQLGameAnalyzer gameAnalyzer = new SQLGameAnalyzer();
+    protected final ChessGameViewer gameViewer = new ChessGameViewer();
+    protected LichessImport lichessImport;
+    protected final ChessSpectators spectators = new ChessSpectators();
+    protected ChessReplication replication;
+    protected boolean compactGameStorage;
+    protected ChessOpeningBook openingBook;
+    protected final ChessEndgameTablebase tablebase = new ChessEndgameTablebase();
+    protected ChessSearch search;
+    protected long searchMillis;
+    protected DummyWeights dummyWeights = DummyWeights.DEFAULT;
 
     public ChessPlugin() {
         instance = this;
@@ -20,18 +50,146 @@ public final class ChessPlugin extends JavaPlugin {
 
     @Override
     public void onEnable() {
+        saveDefaultConfig();
+        reloadConfig();
+        compactGameStorage = getConfig().getBoolean("CompactGameStorage");
+        lichessImport = new LichessImport(getConfig().getString("Lichess.Endpoint", LichessImport.DEFAULT_ENDPOINT),
+                                          getConfig().getInt("Lichess.MaxInFlight", 2),
+                                          getLogger(),
+                                          task -> {
+                                              // No more tasks can be scheduled while disabling
+                                              if (!isEnabled()) throw new RejectedExecutionException("Plugin disabled");
+                                              Bukkit.getScheduler().runTask(this, task);
+                                          });
+        loadOpeningBook();
+        loadDummyWeights();
+        search = new ChessSearch(getConfig().getInt("Search.Threads", 2),
+                                 getConfig().getInt("Search.TableBits", 20));
+        searchMillis = getConfig().getLong("Search.Millis", 3000L);
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+                try {
+                    tablebase.load(new File(getDataFolder(), "tablebase"));
+                    getLogger().info("Endgame tablebase loaded");
+                } catch (IOException ioe) {
+                    getLogger().log(Level.SEVERE, "Endgame tablebase", ioe);
+                }
+            });
         database = new SQLDatabase(this);
         database.registerTable(SQLChessGame.class);
+        database.registerTable(SQLChessGameSummary.class);
+        database.registerTable(SQLGameAnalysis.class);
         database.createAllTables();
+        gameQueue.enable();
+        gameAnalyzer.enable(getConfig().getInt("Analysis.Workers", 1),
+                            getConfig().getInt("Analysis.Threads", 1),
+                            getConfig().getInt("Analysis.TableBits", 18),
+                            getConfig().getLong("Analysis.Millis", 200L),
+                            getConfig().getInt("Analysis.Depth", 8),
+                            getConfig().getBoolean("Analysis.Auto"));
+        if (getConfig().getBoolean("Viewer.Enabled")) {
+            try {
+                gameViewer.enable(getConfig().getString("Viewer.Host", "127.0.0.1"),
+                                  getConfig().getInt("Viewer.Port", 8765),
+                                  getConfig().getString("Viewer.PublicUrl", "http://localhost:8765"));
+            } catch (IOException ioe) {
+                getLogger().log(Level.SEVERE, "Game viewer", ioe);
+            }
+        }
         chessCommand.enable();
         chessAdminCommand.enable();
+        spectators.enable();
+        enableReplication();
         worlds.enable();
     }
 
     @Override
     public void onDisable() {
         worlds.disable();
+        if (replication != null) {
+            replication.disable();
+            replication = null;
+        }
+        spectators.disable();
+        gameViewer.disable();
+        gameQueue.disable();
+        gameAnalyzer.disable();
         database.waitForAsyncTask();
+        closeOpeningBook();
+        search.shutdown();
+    }
+
+    private void loadOpeningBook() {
+        final String fileName = getConfig().getString("OpeningBook.File", "");
+        if (fileName.isEmpty()) return;
+        final String randomFileName = getConfig().getString("OpeningBook.RandomFile", "");
+        try {
+            final long[] random64 = randomFileName.isEmpty()
+                ? ChessOpeningBook.defaultRandom64()
+                : ChessOpeningBook.loadRandom64(new File(getDataFolder(), randomFileName));
+            openingBook = ChessOpeningBook.open(new File(getDataFolder(), fileName), random64);
+            getLogger().info("Opening book " + fileName + ": " + openingBook.getEntryCount() + " entries");
+            if (randomFileName.isEmpty()) {
+                getLogger().warning("Opening book " + fileName + " uses the seeded random numbers."
+                                    + " Third-party books need OpeningBook.RandomFile.");
+            }
+        } catch (IOException ioe) {
+            getLogger().log(Level.SEVERE, "Opening book " + fileName, ioe);
+        }
+    }
+
+    private void loadDummyWeights() {
+        dummyWeights = DummyWeights.DEFAULT;
+        final String fileName = getConfig().getString("Dummy.Weights", "");
+        if (fileName.isEmpty()) return;
+        try {
+            dummyWeights = DummyWeights.load(new File(getDataFolder(), fileName));
+            getLogger().info("Dummy weights " + fileName + ": " + dummyWeights);
+        } catch (IOException ioe) {
+            getLogger().log(Level.SEVERE, "Dummy weights " + fileName, ioe);
+        }
+    }
+
+    private void enableReplication() {
+        final String busName = getConfig().getString("Replication.Bus", "");
+        if (busName.isEmpty()) return;
+        final String serverName = getConfig().getString("Replication.Server", "");
+        if (serverName.isEmpty() || serverName.contains(":")) {
+            getLogger().severe("Replication: Invalid server name: '" + serverName + "'");
+            return;
+        }
+        switch (busName) {
+        case "file": {
+            final String fileName = getConfig().getString("Replication.File", "replication.bin");
+            final File file = new File(fileName).isAbsolute()
+                ? new File(fileName)
+                : new File(getDataFolder(), fileName);
+            try {
+                final ChessFileBus bus = new ChessFileBus(file);
+                bus.start(getConfig().getLong("Replication.PollMillis", 250L),
+                          e -> getLogger().log(Level.SEVERE, "Replication: " + file, e));
+                replication = new ChessReplication(serverName, bus, spectators.getPublisher(), getLogger());
+            } catch (IOException ioe) {
+                getLogger().log(Level.SEVERE, "Replication: " + file, ioe);
+                return;
+            }
+            break;
+        }
+        default:
+            getLogger().severe("Replication: Unknown bus: " + busName);
+            return;
+        }
+        replication.enable();
+        getLogger().info("Replication: " + busName + " as " + serverName);
+    }
+
+    private void closeOpeningBook() {
+        if (openingBook == null) return;
+        try {
+            openingBook.close();
+        } catch (IOException ioe) {
+            getLogger().log(Level.SEVERE, "Opening book", ioe);
+        }
+        openingBook = null;
     }
 
     public static ChessPlugin plugin() {
@@ -0,0 +1,294 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessPiece;
+import com.cavetale.chess.board.ChessPieceType;
+import com.cavetale.chess.board.ChessSquare;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Perfect play for king and queen or king and rook against a lone
+ * king.  Each ending is one byte array with an entry for every
+ * placement of the three pieces and side to move.  An entry holds
+ * the number of plies to mate plus one, or 0 for positions which are
+ * drawn or illegal.  The stronger side is always stored as white;
+ * black positions are mirrored.
+ *
+ * The tables are generated backwards from the mates, one ply per
+ * round, and every round runs in parallel over all positions.  The
+ * stronger side to move is won if one move reaches a won position,
+ * the lone king to move is lost if all of its moves do.  Writes in
+ * a round only go to the side to move in that round, which reads
+ * the other side, so no locking is needed.  Tables can be saved to
+ * a cache file, so only the first start pays for the generation.
+ */
+public final class ChessEndgameTablebase {
+    public static final int SIZE = 64 * 64 * 64 * 2;
+    private static final int STRONG = 0;
+    private static final int WEAK = 1;
+    private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+    private static final int[][] ROOK_STEPS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+    private final Map<ChessPieceType, byte[]> tables = new EnumMap<>(ChessPieceType.class);
+
+    /**
+     * Load all tables from the cache folder, or generate and save
+     * them if the files are missing.  This may take a while and
+     * should not be called on the main thread.
+     */
+    public void load(File folder) throws IOException {
+        for (ChessPieceType type : new ChessPieceType[] {ChessPieceType.QUEEN, ChessPieceType.ROOK}) {
+            final File file = new File(folder, "tablebase-K" + type.letter + "K.bin");
+            byte[] table = null;
+            if (file.isFile() && file.length() == SIZE) {
+                table = Files.readAllBytes(file.toPath());
+            }
+            if (table == null) {
+                table = generate(type);
+                folder.mkdirs();
+                Files.write(file.toPath(), table);
+            }
+            synchronized (tables) {
+                tables.put(type, table);
+            }
+        }
+    }
+
+    private byte[] getTable(ChessPieceType type) {
+        synchronized (tables) {
+            return tables.get(type);
+        }
+    }
+
+    private static int index(int strongKing, int piece, int weakKing, int sideToMove) {
+        return (((strongKing << 6) | piece) << 6 | weakKing) << 1 | sideToMove;
+    }
+
+    public static byte[] generate(ChessPieceType type) {
+        final byte[] table = new byte[SIZE];
+        final boolean diagonal = type == ChessPieceType.QUEEN;
+        // Round 1: the lone king is checkmated
+        IntStream.range(0, SIZE / 2).parallel().forEach(i -> {
+                final int index = (i << 1) | WEAK;
+                if (!isLegal(index, diagonal)) return;
+                final int weakKing = (index >> 1) & 63;
+                final int piece = (index >> 7) & 63;
+                final int strongKing = index >> 13;
+                if (!attacks(piece, strongKing, weakKing, diagonal)) return;
+                if (countWeakMoves(table, index, diagonal, 0) == 0) table[index] = 1;
+            });
+        int unchanged = 0;
+        for (int value = 2; value < 127 && unchanged < 2; value += 1) {
+            final int theValue = value;
+            final int side = value % 2 == 0 ? STRONG : WEAK;
+            final long changes = IntStream.range(0, SIZE / 2).parallel().filter(i -> {
+                    final int index = (i << 1) | side;
+                    if (table[index] != 0 || !isLegal(index, diagonal)) return false;
+                    if (side == STRONG ? isStrongWin(table, index, diagonal) : isWeakLoss(table, index, diagonal, theValue)) {
+                        table[index] = (byte) theValue;
+                        return true;
+                    }
+                    return false;
+                }).count();
+            unchanged = changes == 0 ? unchanged + 1 : 0;
+        }
+        return table;
+    }
+
+    /**
+     * All three pieces on different squares, kings apart, and the
+     * lone king not in check unless it is to move.
+     */
+    private static boolean isLegal(int index, boolean diagonal) {
+        final int weakKing = (index >> 1) & 63;
+        final int piece = (index >> 7) & 63;
+        final int strongKing = index >> 13;
+        if (strongKing == piece || strongKing == weakKing || piece == weakKing) return false;
+        if (isAdjacent(strongKing, weakKing)) return false;
+        return (index & 1) == WEAK || !attacks(piece, strongKing, weakKing, diagonal);
+    }
+
+    private static boolean isAdjacent(int a, int b) {
+        return Math.abs((a & 7) - (b & 7)) <= 1 && Math.abs((a >> 3) - (b >> 3)) <= 1;
+    }
+
+    /**
+     * Check if the piece attacks the target.  Only the strong king
+     * may block, because the lone king cannot hide behind itself.
+     */
+    private static boolean attacks(int piece, int strongKing, int target, boolean diagonal) {
+        final int dx = (target & 7) - (piece & 7);
+        final int dy = (target >> 3) - (piece >> 3);
+        if (dx == 0 && dy == 0) return false;
+        if (dx != 0 && dy != 0 && (!diagonal || Math.abs(dx) != Math.abs(dy))) return false;
+        final int stepX = Integer.signum(dx);
+        final int stepY = Integer.signum(dy);
+        int x = (piece & 7) + stepX;
+        int y = (piece >> 3) + stepY;
+        while (x + 8 * y != target) {
+            if (x + 8 * y == strongKing) return false;
+            x += stepX;
+            y += stepY;
+        }
+        return true;
+    }
+
+    /**
+     * Count the moves of the lone king which do not lead to a won
+     * position of at most maxValue, with 0 meaning any value.
+     * Taking an undefended piece is always a draw.
+     */
+    private static int countWeakMoves(byte[] table, int index, boolean diagonal, int maxValue) {
+        final int weakKing = (index >> 1) & 63;
+        final int piece = (index >> 7) & 63;
+        final int strongKing = index >> 13;
+        int result = 0;
+        for (int[] step : KING_STEPS) {
+            final int x = (weakKing & 7) + step[0];
+            final int y = (weakKing >> 3) + step[1];
+            if (x < 0 || x > 7 || y < 0 || y > 7) continue;
+            final int to = x + 8 * y;
+            if (isAdjacent(to, strongKing)) continue;
+            if (to == piece) {
+                result += 1;
+                continue;
+            }
+            if (attacks(piece, strongKing, to, diagonal)) continue;
+            final int child = table[index(strongKing, piece, to, STRONG)];
+            if (maxValue == 0 || child == 0 || child > maxValue) result += 1;
+        }
+        return result;
+    }
+
+    /**
+     * Every move of the lone king leads to a position won in fewer
+     * than value plies, and at least one move exists.
+     */
+    private static boolean isWeakLoss(byte[] table, int index, boolean diagonal, int value) {
+        if (countWeakMoves(table, index, diagonal, 0) == 0) return false; // Stalemate
+        return countWeakMoves(table, index, diagonal, value - 1) == 0;
+    }
+
+    private static boolean isStrongWin(byte[] table, int index, boolean diagonal) {
+        return findStrongMove(table, index, diagonal) >= 0;
+    }
+
+    /**
+     * Find the strong move to the lone king position with the lowest
+     * value.
+     * @return the move as origin * 64 + destination, or -1
+     */
+    private static int findStrongMove(byte[] table, int index, boolean diagonal) {
+        final int weakKing = (index >> 1) & 63;
+        final int piece = (index >> 7) & 63;
+        final int strongKing = index >> 13;
+        int best = -1;
+        int bestValue = Integer.MAX_VALUE;
+        for (int[] step : KING_STEPS) {
+            final int x = (strongKing & 7) + step[0];
+            final int y = (strongKing >> 3) + step[1];
+            if (x < 0 || x > 7 || y < 0 || y > 7) continue;
+            final int to = x + 8 * y;
+            if (to == piece || isAdjacent(to, weakKing)) continue;
+            final int child = table[index(to, piece, weakKing, WEAK)];
+            if (child > 0 && child < bestValue) {
+                best = strongKing * 64 + to;
+                bestValue = child;
+            }
+        }
+        for (int[] step : diagonal ? KING_STEPS : ROOK_STEPS) {
+            int x = (piece & 7) + step[0];
+            int y = (piece >> 3) + step[1];
+            while (x >= 0 && x <= 7 && y >= 0 && y <= 7) {
+                final int to = x + 8 * y;
+                if (to == strongKing || to == weakKing) break;
+                final int child = table[index(strongKing, to, weakKing, WEAK)];
+                if (child > 0 && child < bestValue) {
+                    best = piece * 64 + to;
+                    bestValue = child;
+                }
+                x += step[0];
+                y += step[1];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Find the best move of the lone king: take the piece if
+     * possible, otherwise delay the mate as long as possible.
+     * @return the move as origin * 64 + destination, or -1
+     */
+    private static int findWeakMove(byte[] table, int index, boolean diagonal) {
+        final int weakKing = (index >> 1) & 63;
+        final int piece = (index >> 7) & 63;
+        final int strongKing = index >> 13;
+        int best = -1;
+        int bestValue = -1;
+        for (int[] step : KING_STEPS) {
+            final int x = (weakKing & 7) + step[0];
+            final int y = (weakKing >> 3) + step[1];
+            if (x < 0 || x > 7 || y < 0 || y > 7) continue;
+            final int to = x + 8 * y;
+            if (isAdjacent(to, strongKing)) continue;
+            if (to == piece) return weakKing * 64 + to;
+            if (attacks(piece, strongKing, to, diagonal)) continue;
+            int child = table[index(strongKing, piece, to, STRONG)];
+            if (child == 0) child = Integer.MAX_VALUE; // Drawn
+            if (child > bestValue) {
+                best = weakKing * 64 + to;
+                bestValue = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the perfect move for a position with the lone king against
+     * king and queen or king and rook.
+     * @return the move, or null if the position is not covered, not
+     *   yet loaded, or not won
+     */
+    public ChessMove probe(ChessBoard board) {
+        ChessPiece strongPiece = null;
+        int piece = -1;
+        int count = 0;
+        for (ChessSquare square : ChessSquare.values()) {
+            final ChessPiece it = board.getPieceAt(square);
+            if (it == null) continue;
+            count += 1;
+            if (count > 3) return null;
+            if (it.type != ChessPieceType.KING) {
+                if (strongPiece != null) return null;
+                strongPiece = it;
+                piece = square.ordinal();
+            }
+        }
+        if (count != 3 || strongPiece == null) return null;
+        if (strongPiece.type != ChessPieceType.QUEEN && strongPiece.type != ChessPieceType.ROOK) return null;
+        if (board.canCastleKingside(strongPiece.color) || board.canCastleQueenside(strongPiece.color)) return null;
+        final byte[] table = getTable(strongPiece.type);
+        if (table == null) return null;
+        final ChessColor strong = strongPiece.color;
+        final int strongKing = board.findFirstPiece(ChessPiece.of(strong, ChessPieceType.KING)).ordinal();
+        final int weakKing = board.findFirstPiece(ChessPiece.of(strong.other(), ChessPieceType.KING)).ordinal();
+        // Black is stored as white, upside down
+        final int mirror = strong == ChessColor.WHITE ? 0 : 56;
+        final int sideToMove = board.getActiveColor() == strong ? STRONG : WEAK;
+        final int index = index(strongKing ^ mirror, piece ^ mirror, weakKing ^ mirror, sideToMove);
+        if (table[index] == 0) return null;
+        final boolean diagonal = strongPiece.type == ChessPieceType.QUEEN;
+        final int move = sideToMove == STRONG
+            ? findStrongMove(table, index, diagonal)
+            : findWeakMove(table, index, diagonal);
+        if (move < 0) return null;
+        return new ChessMove(ChessSquare.values()[(move >> 6) ^ mirror],
+                             ChessSquare.values()[(move & 63) ^ mirror]);
+    }
+}
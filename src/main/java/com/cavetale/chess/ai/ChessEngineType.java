@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public enum ChessEngineType {
     DUMMY("Dummy"),
+    ALPHA_BETA("AlphaBeta"),
     STOCKFISH("Stockfish");
 
     private final String displayName;
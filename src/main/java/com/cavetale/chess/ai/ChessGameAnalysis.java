@@ -0,0 +1,122 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.board.ChessTurn;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Analysis of a finished game.  Every position is searched once, and
+ * the loss of a move is the drop of the evaluation from before to
+ * after it, for the side which played it.  Scores are capped so a
+ * missed mate does not outweigh the rest of the game.
+ *
+ * Accuracy follows the formula Lichess publishes: evaluations become
+ * winning chances, and each move is rated by how much of the chances
+ * it gives away.  A move which gives away 5, 10 or 15 win percent,
+ * which is 0.1, 0.2 or 0.3 of the winning chances from -1 to 1, is
+ * an inaccuracy, a mistake or a blunder.
+ */
+@Getter
+public final class ChessGameAnalysis {
+    public static final int MAX_SCORE = 1000;
+    /** The evaluation of every position, in centipawns for white. */
+    private final int[] evals;
+    private final Side white = new Side();
+    private final Side black = new Side();
+
+    @Getter
+    public static final class Side {
+        private int moves;
+        private int totalLoss;
+        private double totalAccuracy;
+        private final List<Integer> inaccuracies = new ArrayList<>();
+        private final List<Integer> mistakes = new ArrayList<>();
+        private final List<Integer> blunders = new ArrayList<>();
+
+        /** The average centipawn loss. */
+        public int getAverageLoss() {
+            return moves > 0 ? totalLoss / moves : 0;
+        }
+
+        /** The average accuracy in percent. */
+        public double getAccuracy() {
+            return moves > 0 ? totalAccuracy / moves : 100.0;
+        }
+    }
+
+    private ChessGameAnalysis(final int[] evals) {
+        this.evals = evals;
+    }
+
+    public Side getSide(ChessColor color) {
+        return color == ChessColor.WHITE ? white : black;
+    }
+
+    /**
+     * Analyze a game on the calling thread.
+     * @param millis the search time for each position
+     * @param depth the maximum search depth for each position
+     */
+    public static ChessGameAnalysis analyze(ChessGame game, ChessSearch search, long millis, int depth) {
+        final List<ChessTurn> turns = game.getTurns();
+        final int[] evals = new int[turns.size()];
+        final long[] hashes = new long[turns.size()];
+        for (int i = 0; i < turns.size(); i += 1) {
+            final ChessTurn turn = turns.get(i);
+            hashes[i] = turn.getBoard().getRepetitionHash();
+            final long[] history = Arrays.copyOf(hashes, i + 1);
+            int score;
+            if (turn.getState().isGameOver()) {
+                // Resignation and timeout keep the last evaluation
+                score = switch (turn.getState()) {
+                case CHECKMATE -> -MAX_SCORE;
+                case STALEMATE, DRAW_BY_FIFTY_MOVE_RULE, DRAW_BY_INSUFFICIENT_MATERIAL, DRAW_BY_REPETITION -> 0;
+                default -> search.analyze(turn.getBoard(), history, millis, depth).score();
+                };
+            } else {
+                score = search.analyze(turn.getBoard(), history, millis, depth).score();
+            }
+            score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+            evals[i] = turn.getBoard().getActiveColor() == ChessColor.WHITE ? score : -score;
+        }
+        return ofEvals(turns.get(0).getBoard().getActiveColor(), evals);
+    }
+
+    /**
+     * Rate the moves of a game from the evaluation of each position.
+     * @param first the color which played the first move
+     * @param evals the evaluation before each move and after the
+     *   last one, in centipawns for white
+     */
+    static ChessGameAnalysis ofEvals(ChessColor first, int[] evals) {
+        final ChessGameAnalysis result = new ChessGameAnalysis(evals);
+        ChessColor color = first;
+        for (int i = 0; i + 1 < evals.length; i += 1) {
+            final int sign = color == ChessColor.WHITE ? 1 : -1;
+            final int before = sign * evals[i];
+            final int after = sign * evals[i + 1];
+            final Side side = result.getSide(color);
+            side.moves += 1;
+            side.totalLoss += Math.max(0, before - after);
+            final double drop = Math.max(0.0, getWinPercent(before) - getWinPercent(after));
+            side.totalAccuracy += Math.max(0.0, Math.min(100.0, 103.1668 * Math.exp(-0.04354 * drop) - 3.1669));
+            if (drop >= 15.0) {
+                side.blunders.add(i);
+            } else if (drop >= 10.0) {
+                side.mistakes.add(i);
+            } else if (drop >= 5.0) {
+                side.inaccuracies.add(i);
+            }
+            color = color.other();
+        }
+        return result;
+    }
+
+    public static double getWinPercent(int centipawns) {
+        return 50.0 + 50.0 * (2.0 / (1.0 + Math.exp(-0.00368208 * centipawns)) - 1.0);
+    }
+}
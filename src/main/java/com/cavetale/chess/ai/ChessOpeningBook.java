@@ -0,0 +1,241 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessPiece;
+import com.cavetale.chess.board.ChessPieceType;
+import com.cavetale.chess.board.ChessSquare;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import lombok.Getter;
+
+/**
+ * An opening book in the Polyglot format.  The file is a list of
+ * 16 byte entries, sorted by the key of their position: key (8
+ * bytes), move (2), weight (2) and learn (4), all big endian.  The
+ * file is memory-mapped and searched in place, so a large book
+ * costs no heap and can be shared by all boards.
+ *
+ * Keys are computed like Polyglot does, from 781 random numbers.
+ * The numbers of the Polyglot standard are not shipped with this
+ * plugin.  They can be loaded from a file of 781 big endian longs to
+ * read third-party books.  Otherwise a seeded table is used, which
+ * matches books written by our own builder.
+ */
+public final class ChessOpeningBook implements Closeable {
+    public static final int ENTRY_SIZE = 16;
+    public static final int RANDOM_COUNT = 781;
+    private static final int RANDOM_CASTLE = 768;
+    private static final int RANDOM_EN_PASSANT = 772;
+    private static final int RANDOM_TURN = 780;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    @Getter private final int entryCount;
+    private final long[] random64;
+
+    public record Entry(ChessMove move, int weight) { }
+
+    private ChessOpeningBook(final FileChannel channel, final MappedByteBuffer buffer, final long[] random64) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.entryCount = buffer.capacity() / ENTRY_SIZE;
+        this.random64 = random64;
+    }
+
+    /**
+     * Open a book file.
+     * @param file the book
+     * @param random64 the random numbers, see loadRandom64() and
+     *   defaultRandom64()
+     */
+    public static ChessOpeningBook open(File file, long[] random64) throws IOException {
+        if (random64.length != RANDOM_COUNT) {
+            throw new IllegalArgumentException("Expected " + RANDOM_COUNT + " random numbers: " + random64.length);
+        }
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            if (size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid book size: " + file + ", " + size);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new ChessOpeningBook(channel, buffer, random64);
+        } catch (IOException ioe) {
+            channel.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Load the random numbers from a file of 781 big endian longs.
+     */
+    public static long[] loadRandom64(File file) throws IOException {
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        if (bytes.length != RANDOM_COUNT * 8) {
+            throw new IOException("Expected " + (RANDOM_COUNT * 8) + " bytes: " + file + ", " + bytes.length);
+        }
+        final long[] result = new long[RANDOM_COUNT];
+        ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN).asLongBuffer().get(result);
+        return result;
+    }
+
+    /**
+     * The seeded random numbers used by books we write ourselves.
+     */
+    public static long[] defaultRandom64() {
+        final Random random = new Random(0x506f6c79676c6f74L);
+        final long[] result = new long[RANDOM_COUNT];
+        for (int i = 0; i < RANDOM_COUNT; i += 1) {
+            result[i] = random.nextLong();
+        }
+        return result;
+    }
+
+    /**
+     * Compute the Polyglot key of a position.
+     */
+    public static long getKey(ChessBoard board, long[] random64) {
+        long result = 0L;
+        for (ChessSquare square : ChessSquare.values()) {
+            final ChessPiece piece = board.getPieceAt(square);
+            if (piece == null) continue;
+            final int kind = 2 * piece.type.ordinal() + (piece.color == ChessColor.WHITE ? 1 : 0);
+            result ^= random64[64 * kind + square.ordinal()];
+        }
+        if (board.isWhiteCanCastleKingside()) result ^= random64[RANDOM_CASTLE];
+        if (board.isWhiteCanCastleQueenside()) result ^= random64[RANDOM_CASTLE + 1];
+        if (board.isBlackCanCastleKingside()) result ^= random64[RANDOM_CASTLE + 2];
+        if (board.isBlackCanCastleQueenside()) result ^= random64[RANDOM_CASTLE + 3];
+        if (board.getEnPassantSquare() != null && canCaptureEnPassant(board)) {
+            result ^= random64[RANDOM_EN_PASSANT + board.getEnPassantSquare().x];
+        }
+        if (board.getActiveColor() == ChessColor.WHITE) result ^= random64[RANDOM_TURN];
+        return result;
+    }
+
+    public long getKey(ChessBoard board) {
+        return getKey(board, random64);
+    }
+
+    /**
+     * Polyglot only hashes the en passant file if a pawn of the side
+     * to move stands next to the pawn which just moved.
+     */
+    private static boolean canCaptureEnPassant(ChessBoard board) {
+        final ChessSquare target = board.getEnPassantSquare();
+        final ChessColor color = board.getActiveColor();
+        final int y = color == ChessColor.WHITE ? target.y - 1 : target.y + 1;
+        final ChessPiece pawn = ChessPiece.of(color, ChessPieceType.PAWN);
+        return (target.x > 0 && board.getPieceAt(target.x - 1, y) == pawn)
+            || (target.x < 7 && board.getPieceAt(target.x + 1, y) == pawn);
+    }
+
+    /**
+     * Encode a move like Polyglot: destination in bits 0-5, origin
+     * in bits 6-11, promotion in bits 12-14.  Castling is written as
+     * the king capturing its own rook.
+     */
+    public static int encodeMove(ChessBoard board, ChessMove move) {
+        ChessSquare to = move.to();
+        final ChessPiece piece = board.getPieceAt(move.from());
+        if (piece != null && piece.type == ChessPieceType.KING && Math.abs(move.to().x - move.from().x) == 2) {
+            to = ChessSquare.at(move.to().x > move.from().x ? 7 : 0, move.to().y);
+        }
+        final int promotion = move.promotion() != null
+            ? move.promotion().ordinal()
+            : 0;
+        return to.ordinal() | (move.from().ordinal() << 6) | (promotion << 12);
+    }
+
+    /**
+     * Decode a Polyglot move in the given position.
+     * @return the move, or null if it is malformed
+     */
+    public static ChessMove decodeMove(ChessBoard board, int encoded) {
+        final ChessSquare from = ChessSquare.values()[(encoded >> 6) & 63];
+        ChessSquare to = ChessSquare.values()[encoded & 63];
+        final int promotionIndex = (encoded >> 12) & 7;
+        if (promotionIndex > ChessPieceType.QUEEN.ordinal()) return null;
+        final ChessPieceType promotion = promotionIndex > 0
+            ? ChessPieceType.values()[promotionIndex]
+            : null;
+        final ChessPiece piece = board.getPieceAt(from);
+        final ChessPiece target = board.getPieceAt(to);
+        if (piece != null && piece.type == ChessPieceType.KING
+            && target != null && target.type == ChessPieceType.ROOK && target.color == piece.color) {
+            to = ChessSquare.at(to.x > from.x ? 6 : 2, from.y);
+        }
+        return new ChessMove(from, to, promotion);
+    }
+
+    /**
+     * Find all legal book moves for a position.
+     */
+    public List<Entry> findEntries(ChessBoard board) {
+        final long key = getKey(board);
+        final List<Entry> result = new ArrayList<>();
+        final Map<ChessMove, ChessBoard> legalMoves = board.getLegalMoves();
+        for (int i = lowerBound(key); i < entryCount && buffer.getLong(i * ENTRY_SIZE) == key; i += 1) {
+            final int offset = i * ENTRY_SIZE;
+            final int weight = buffer.getShort(offset + 10) & 0xFFFF;
+            final ChessMove move = decodeMove(board, buffer.getShort(offset + 8) & 0xFFFF);
+            if (move == null || !legalMoves.containsKey(move)) continue;
+            result.add(new Entry(move, weight));
+        }
+        return result;
+    }
+
+    /**
+     * Pick a book move at random, by weight.
+     * @return the move, or null if the position is not in the book
+     */
+    public ChessMove findMove(ChessBoard board, Random random) {
+        final List<Entry> entries = findEntries(board);
+        int total = 0;
+        for (Entry entry : entries) total += entry.weight();
+        if (total == 0) return entries.isEmpty() ? null : entries.get(random.nextInt(entries.size())).move();
+        int roll = random.nextInt(total);
+        for (Entry entry : entries) {
+            roll -= entry.weight();
+            if (roll < 0) return entry.move();
+        }
+        return null;
+    }
+
+    /**
+     * Binary search for the first entry with the key, comparing keys
+     * unsigned like Polyglot sorts them.  Absolute reads leave the
+     * buffer position alone, so many threads may search at once.
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(buffer.getLong(mid * ENTRY_SIZE), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,354 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessPiece;
+import com.cavetale.chess.board.ChessSquare;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+
+/**
+ * An alpha-beta search which runs on several threads at once, in the
+ * style of Lazy SMP.  All threads search the same position with
+ * iterative deepening and share one transposition table, so each
+ * thread profits from the lines the others have already refuted.
+ * Helper threads start at staggered depths and shuffle their move
+ * order to spread out over the tree.  The thread which called
+ * search() decides the result and stops the helpers at its deadline.
+ *
+ * A position which repeats one from the game history or from the
+ * current line is scored as a draw, so the search neither walks
+ * into a repetition when ahead nor misses one when behind.
+ */
+public final class ChessSearch {
+    public static final int MATE = 30000;
+    private static final int INFINITY = 32000;
+    private static final long[] RANDOM64 = ChessOpeningBook.defaultRandom64();
+    @Getter private final int threads;
+    @Getter private final ChessTranspositionTable table;
+    private final ExecutorService rootExecutor;
+    private final ExecutorService helperExecutor;
+
+    /**
+     * @param threads the number of threads for one search
+     * @param tableBits see ChessTranspositionTable
+     */
+    public ChessSearch(final int threads, final int tableBits) {
+        this.threads = Math.max(1, threads);
+        this.table = new ChessTranspositionTable(tableBits);
+        this.rootExecutor = Executors.newCachedThreadPool(daemon("Chess-Search"));
+        this.helperExecutor = this.threads > 1
+            ? Executors.newFixedThreadPool(this.threads - 1, daemon("Chess-SearchHelper"))
+            : null;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+    }
+
+    public void shutdown() {
+        rootExecutor.shutdownNow();
+        if (helperExecutor != null) helperExecutor.shutdownNow();
+    }
+
+    /**
+     * Search on a thread of this search, see search().  The board
+     * and history are copied first.
+     */
+    public CompletableFuture<ChessMove> searchAsync(ChessBoard board, List<Long> history, long millis, int maxDepth) {
+        final ChessBoard copy = new ChessBoard(board);
+        final long[] hashes = toArray(history);
+        return CompletableFuture.supplyAsync(() -> analyze(copy, hashes, millis, maxDepth).move(), rootExecutor);
+    }
+
+    private static long[] toArray(List<Long> history) {
+        final long[] result = new long[history.size()];
+        for (int i = 0; i < result.length; i += 1) result[i] = history.get(i);
+        return result;
+    }
+
+    /**
+     * The outcome of a search.
+     * @param move the best move, or null if there is no legal move
+     * @param score the score in centipawns for the side to move,
+     *   near MATE for a forced mate
+     * @param depth the deepest finished iteration
+     */
+    public record Result(ChessMove move, int score, int depth) { }
+
+    /**
+     * Search the position on this thread and the helper threads
+     * until the deadline or the depth is reached, see analyze().
+     * @param history the repetition hashes of the game so far, see
+     *   ChessGame.getRepetitionHashes()
+     * @return the best move of the deepest finished iteration, or
+     *   null if there is no legal move
+     */
+    public ChessMove search(ChessBoard board, List<Long> history, long millis, int maxDepth) {
+        return analyze(board, toArray(history), millis, maxDepth).move();
+    }
+
+    /**
+     * Search a position without a game history.
+     */
+    public ChessMove search(ChessBoard board, long millis, int maxDepth) {
+        return analyze(board, new long[0], millis, maxDepth).move();
+    }
+
+    public Result analyze(ChessBoard board, long millis, int maxDepth) {
+        return analyze(board, new long[0], millis, maxDepth);
+    }
+
+    /**
+     * Search the position on this thread and the helper threads
+     * until the deadline or the depth is reached.  Helpers never
+     * block the caller: if they are still busy with an earlier
+     * search, they join late or not at all.
+     * @param history the repetition hashes of the positions before
+     *   and including this one, oldest first
+     */
+    public Result analyze(ChessBoard board, long[] history, long millis, int maxDepth) {
+        if (board.getLegalMoves().isEmpty()) {
+            return new Result(null, board.isKingInCheck() ? -MATE : 0, 0);
+        }
+        final long deadline = System.nanoTime() + millis * 1_000_000L;
+        final AtomicBoolean stop = new AtomicBoolean();
+        for (int i = 1; i < threads; i += 1) {
+            final Worker helper = new Worker(new ChessBoard(board), history, maxDepth, stop, deadline, new Random(i));
+            final int startDepth = 1 + (i % 2);
+            helperExecutor.execute(() -> helper.iterate(startDepth, maxDepth));
+        }
+        final Worker main = new Worker(new ChessBoard(board), history, maxDepth, stop, deadline, null);
+        main.iterate(1, maxDepth);
+        stop.set(true);
+        if (main.bestMove == null) {
+            // Out of time before the first iteration finished
+            return new Result(board.getLegalMoves().keySet().iterator().next(), evaluate(board), 0);
+        }
+        return new Result(main.bestMove, main.bestScore, main.bestDepth);
+    }
+
+    private final class Worker {
+        private final ChessBoard board;
+        private final AtomicBoolean stop;
+        private final long deadline;
+        private final Random random;
+        private ChessMove bestMove;
+        private int bestScore;
+        private int bestDepth;
+        private ChessMove iterationMove;
+        private int nodes;
+        /**
+         * The repetition hashes of the game history, followed by
+         * those of the current line.  The root is at rootIndex.
+         */
+        private final long[] path;
+        private final int rootIndex;
+
+        Worker(final ChessBoard board, final long[] history, final int maxDepth,
+               final AtomicBoolean stop, final long deadline, final Random random) {
+            this.board = board;
+            this.rootIndex = Math.max(0, history.length - 1);
+            this.path = new long[rootIndex + maxDepth + 1];
+            System.arraycopy(history, 0, path, 0, Math.min(history.length, rootIndex));
+            this.stop = stop;
+            this.deadline = deadline;
+            this.random = random;
+        }
+
+        private void iterate(int startDepth, int maxDepth) {
+            for (int depth = startDepth; depth <= maxDepth; depth += 1) {
+                iterationMove = null;
+                final int score = search(board, depth, -INFINITY, INFINITY, 0);
+                if (stop.get()) return;
+                if (iterationMove != null) {
+                    bestMove = iterationMove;
+                    bestScore = score;
+                    bestDepth = depth;
+                }
+            }
+        }
+
+        private boolean isStopped() {
+            if (stop.get()) return true;
+            if ((++nodes & 255) == 0 && System.nanoTime() > deadline) {
+                stop.set(true);
+                return true;
+            }
+            return false;
+        }
+
+        private int search(ChessBoard node, int depth, int alpha, int beta, int ply) {
+            if (isStopped()) return 0;
+            if (ply > 0 && node.getHalfMoveClock() >= ChessBoard.DRAW_HALF_MOVE_CLOCK) return 0;
+            final long repetitionHash = node.getRepetitionHash();
+            if (ply > 0 && isRepetition(repetitionHash, rootIndex + ply, node.getHalfMoveClock())) return 0;
+            path[rootIndex + ply] = repetitionHash;
+            final long key = ChessOpeningBook.getKey(node, RANDOM64);
+            final long data = table.probe(key);
+            int hashMove = 0;
+            if (data != 0L) {
+                hashMove = ChessTranspositionTable.getMove(data);
+                if (ply > 0 && ChessTranspositionTable.getDepth(data) >= depth) {
+                    final int score = fromTable(ChessTranspositionTable.getScore(data), ply);
+                    switch (ChessTranspositionTable.getBound(data)) {
+                    case ChessTranspositionTable.EXACT: return score;
+                    case ChessTranspositionTable.LOWER: if (score >= beta) return score; break;
+                    case ChessTranspositionTable.UPPER: if (score <= alpha) return score; break;
+                    default: break;
+                    }
+                }
+            }
+            if (depth <= 0) return quiesce(node, alpha, beta, ply);
+            final Map<ChessMove, ChessBoard> moves = node.getLegalMoves();
+            if (moves.isEmpty()) {
+                return node.isKingInCheck() ? -MATE + ply : 0;
+            }
+            final int originalAlpha = alpha;
+            int best = -INFINITY;
+            ChessMove bestNodeMove = null;
+            for (ChessMove move : order(node, moves, hashMove)) {
+                final int score = -search(moves.get(move), depth - 1, -beta, -alpha, ply + 1);
+                if (stop.get()) return 0;
+                if (score > best) {
+                    best = score;
+                    bestNodeMove = move;
+                }
+                if (score > alpha) alpha = score;
+                if (alpha >= beta) break;
+            }
+            final int bound = best <= originalAlpha
+                ? ChessTranspositionTable.UPPER
+                : (best >= beta ? ChessTranspositionTable.LOWER : ChessTranspositionTable.EXACT);
+            table.store(key, bestNodeMove.pack(), toTable(best, ply), depth, bound);
+            if (ply == 0) iterationMove = bestNodeMove;
+            return best;
+        }
+
+        /**
+         * Look for the position among the earlier ones with the same
+         * side to move, back to the last capture or pawn move.
+         */
+        private boolean isRepetition(long hash, int index, int halfMoveClock) {
+            final int end = Math.max(0, index - halfMoveClock);
+            for (int i = index - 2; i >= end; i -= 2) {
+                if (path[i] == hash) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Only look at captures and promotions until the position is
+         * quiet, so the evaluation does not stop in the middle of an
+         * exchange.
+         */
+        private int quiesce(ChessBoard node, int alpha, int beta, int ply) {
+            if (isStopped()) return 0;
+            final int standPat = evaluate(node);
+            if (standPat >= beta) return standPat;
+            if (standPat > alpha) alpha = standPat;
+            final Map<ChessMove, ChessBoard> moves = node.getLegalMoves();
+            if (moves.isEmpty()) {
+                return node.isKingInCheck() ? -MATE + ply : 0;
+            }
+            final List<ChessMove> captures = new ArrayList<>();
+            for (ChessMove move : moves.keySet()) {
+                if (node.getPieceAt(move.to()) != null || move.promotion() != null) captures.add(move);
+            }
+            captures.sort((a, b) -> Integer.compare(captureScore(node, b), captureScore(node, a)));
+            for (ChessMove move : captures) {
+                final int score = -quiesce(moves.get(move), -beta, -alpha, ply + 1);
+                if (stop.get()) return 0;
+                if (score >= beta) return score;
+                if (score > alpha) alpha = score;
+            }
+            return alpha;
+        }
+
+        /**
+         * The hash move first, then captures of the most valuable
+         * victim by the least valuable attacker.  Helpers shuffle
+         * first so equal moves come in a different order.
+         */
+        private List<ChessMove> order(ChessBoard node, Map<ChessMove, ChessBoard> moves, int hashMove) {
+            final List<ChessMove> result = new ArrayList<>(moves.keySet());
+            if (random != null) Collections.shuffle(result, random);
+            result.sort((a, b) -> Integer.compare(orderScore(node, b, hashMove), orderScore(node, a, hashMove)));
+            return result;
+        }
+    }
+
+    private static int orderScore(ChessBoard node, ChessMove move, int hashMove) {
+        if (hashMove != 0 && move.pack() == hashMove) return Integer.MAX_VALUE;
+        return captureScore(node, move);
+    }
+
+    private static int captureScore(ChessBoard node, ChessMove move) {
+        final ChessPiece victim = node.getPieceAt(move.to());
+        int result = 0;
+        if (victim != null) result += 10 * victim.type.value + 10 - node.getPieceAt(move.from()).type.value;
+        if (move.promotion() != null) result += move.promotion().value;
+        return result;
+    }
+
+    /**
+     * Mate scores are stored relative to the node, so they stay
+     * correct wherever the position occurs in the tree.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > MATE - 1000) return score + ply;
+        if (score < -MATE + 1000) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > MATE - 1000) return score - ply;
+        if (score < -MATE + 1000) return score + ply;
+        return score;
+    }
+
+    /**
+     * Material plus small bonuses for advanced pawns and central
+     * minor pieces, from the view of the side to move.
+     */
+    public static int evaluate(ChessBoard board) {
+        int result = 0;
+        for (ChessSquare square : ChessSquare.values()) {
+            final ChessPiece piece = board.getPieceAt(square);
+            if (piece == null) continue;
+            int score = piece.type.value * 100;
+            switch (piece.type) {
+            case PAWN:
+                score += 5 * (piece.color == ChessColor.WHITE ? square.y - 1 : 6 - square.y);
+                break;
+            case KNIGHT: case BISHOP:
+                score += 12 - 4 * Math.max(centerDistance(square.x), centerDistance(square.y));
+                break;
+            default: break;
+            }
+            result += piece.color == board.getActiveColor() ? score : -score;
+        }
+        return result;
+    }
+
+    private static int centerDistance(int coordinate) {
+        return coordinate < 4 ? 3 - coordinate : coordinate - 4;
+    }
+}
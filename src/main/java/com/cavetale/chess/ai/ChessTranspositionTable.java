@@ -0,0 +1,71 @@
+package com.cavetale.chess.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A transposition table shared by all search threads without locks.
+ * Every entry is two longs: the key xor the data, and the data.  A
+ * reader only accepts an entry if both halves agree with its key, so
+ * an entry torn by two threads writing at once is simply a miss.
+ *
+ * The data packs the best move (16 bits, see ChessMove.pack()), the
+ * score (16 bits), the depth (8 bits) and the bound (2 bits).
+ */
+public final class ChessTranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    /**
+     * @param bits the table holds 2^bits entries of 16 bytes
+     */
+    public ChessTranspositionTable(final int bits) {
+        this.entries = new AtomicLongArray(2 << bits);
+        this.mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Get the data stored for a key.
+     * @return the data, or 0 if there is none
+     */
+    public long probe(long key) {
+        final int index = ((int) key & mask) << 1;
+        final long data = entries.getOpaque(index + 1);
+        if ((entries.getOpaque(index) ^ data) != key) return 0L;
+        return data;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        final int index = ((int) key & mask) << 1;
+        final long data = (move & 0xFFFFL)
+            | ((score & 0xFFFFL) << 16)
+            | ((long) Math.min(255, Math.max(0, depth)) << 32)
+            | ((long) bound << 40);
+        entries.setOpaque(index, key ^ data);
+        entries.setOpaque(index + 1, data);
+    }
+
+    public static int getMove(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int getScore(long data) {
+        return (short) (data >> 16);
+    }
+
+    public static int getDepth(long data) {
+        return (int) ((data >> 32) & 0xFF);
+    }
+
+    public static int getBound(long data) {
+        return (int) ((data >> 40) & 3);
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i += 1) {
+            entries.setOpaque(i, 0L);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.cavetale.chess.board.ChessMove;
 import com.cavetale.chess.board.ChessSquare;
 import com.cavetale.chess.board.ChessTurn;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -19,10 +20,23 @@ import lombok.RequiredArgsConstructor;
  * place, ranging from as low as 35% to over 90%.
  * Most notably, the score encourages early Queen movements.  Perhaps
  * it could be optimized in the future.
+ *
+ * The score is the sum of features times their weight, see
+ * DummyWeights.  ChessDummyTuner can fit the weights to games.
  */
 @Data
 public final class DummyAI {
+    private static final int CONTROL = DummyWeights.Feature.CONTROL.ordinal();
+    private static final int COUNTER_CONTROL = DummyWeights.Feature.COUNTER_CONTROL.ordinal();
+    private static final int ATTACK = DummyWeights.Feature.ATTACK.ordinal();
+    private static final int COUNTER_ATTACK = DummyWeights.Feature.COUNTER_ATTACK.ordinal();
+    private static final int PIECE = DummyWeights.Feature.PIECE.ordinal();
+    private static final int COUNTER_PIECE = DummyWeights.Feature.COUNTER_PIECE.ordinal();
+    private static final int COVER = DummyWeights.Feature.COVER.ordinal();
+    private static final int TAKE = DummyWeights.Feature.TAKE.ordinal();
+    private static final int CASTLE = DummyWeights.Feature.CASTLE.ordinal();
     private boolean debug;
+    private DummyWeights weights = DummyWeights.DEFAULT;
 
     public ChessMove getBestMove(ChessGame game) {
         final var turn = game.getCurrentTurn();
@@ -35,15 +49,9 @@ public final class DummyAI {
                 return move;
             }
             Consideration consideration = new Consideration(move);
-            consideration.compute(turn, board);
+            consideration.compute(turn, board, weights);
             considerations.add(consideration);
-            int repCount = 1;
-            for (var old : game.getTurns()) {
-                if (board.isRepetitionOf(old.getBoard())) {
-                    repCount += 1;
-                }
-            }
-            if (repCount >= 3) {
+            if (game.countRepetitions(board) >= 3) {
                 consideration.total = Integer.MIN_VALUE;
             }
         }
@@ -51,94 +59,94 @@ public final class DummyAI {
         Collections.sort(considerations, Comparator.comparing(Consideration::getTotal).reversed());
         if (debug) {
             for (int i = 0; i < 4 && i < considerations.size(); i += 1) {
-                System.out.println(i + ". " + turn.getMoveText(considerations.get(i).getMove()) + " " + considerations.get(i));
+                final Consideration it = considerations.get(i);
+                System.out.println(i + ". " + turn.getMoveText(it.getMove()) + " " + it.getTotal() + " " + Arrays.toString(it.getFeatures()));
             }
         }
         return considerations.get(0).getMove();
     }
 
-    @Data
-    @RequiredArgsConstructor
-    private static final class Consideration {
-        final ChessMove move;
-        int controlScore;
-        int counterControlScore;
-        int attackScore;
-        int counterAttackScore;
-        int pieceScore;
-        int counterPieceScore;
-        int coverScore;
-        int takeScore;
-        int castleScore;
-        int total;
-
-        private void compute(ChessTurn turn, ChessBoard board) {
-            final var color = turn.getBoard().getActiveColor();
-            final var enemy = color.other();
-            final var piece = turn.getBoard().getPieceAt(move.from());
-            // Control score
-            for (var square : ChessSquare.values()) {
-                if (board.isInCheck(square, enemy)) {
-                    final var attackedPiece = board.getPieceAt(square);
-                    if (attackedPiece == null || attackedPiece.color == enemy) {
-                        controlScore += 1;
-                    }
-                    if (attackedPiece != null && attackedPiece.color != color) {
-                        attackScore += attackedPiece.type.value;
-                    }
+    /**
+     * Compute the features of a move, in the order of
+     * DummyWeights.Feature.
+     * @param turn the turn before the move
+     * @param move the move
+     * @param board the board after the move
+     */
+    public static int[] getFeatures(ChessTurn turn, ChessMove move, ChessBoard board) {
+        final int[] features = new int[DummyWeights.Feature.values().length];
+        final var color = turn.getBoard().getActiveColor();
+        final var enemy = color.other();
+        final var piece = turn.getBoard().getPieceAt(move.from());
+        // Control score
+        for (var square : ChessSquare.values()) {
+            if (board.isInCheck(square, enemy)) {
+                final var attackedPiece = board.getPieceAt(square);
+                if (attackedPiece == null || attackedPiece.color == enemy) {
+                    features[CONTROL] += 1;
                 }
-                if (board.isInCheck(square, color)) {
-                    final var attackedPiece = board.getPieceAt(square);
-                    if (attackedPiece == null || attackedPiece.color == color) {
-                        counterControlScore += 1;
-                    }
-                    if (attackedPiece != null && attackedPiece.color == color) {
-                        counterAttackScore += attackedPiece.type.value;
-                    }
+                if (attackedPiece != null && attackedPiece.color != color) {
+                    features[ATTACK] += attackedPiece.type.value;
                 }
             }
-            // Pieces
-            for (var entry : board.countPieces(color).entrySet()) {
-                pieceScore += entry.getKey().getValue() * entry.getValue();
-            }
-            for (var entry : board.countPieces(enemy).entrySet()) {
-                counterPieceScore += entry.getKey().getValue() * entry.getValue();
-            }
-            // Cover
-            for (var square : ChessSquare.values()) {
-                final var coveredPiece = board.getPieceAt(square);
-                if (coveredPiece == null || coveredPiece.color != color) continue;
-                if (board.isInCheck(square, enemy)) {
-                    coverScore += coveredPiece.type.value;
-                } else {
-                    coverScore -= coveredPiece.type.value;
+            if (board.isInCheck(square, color)) {
+                final var attackedPiece = board.getPieceAt(square);
+                if (attackedPiece == null || attackedPiece.color == color) {
+                    features[COUNTER_CONTROL] += 1;
+                }
+                if (attackedPiece != null && attackedPiece.color == color) {
+                    features[COUNTER_ATTACK] += attackedPiece.type.value;
                 }
             }
-            // Taking
-            final var taken = turn.getBoard().getPieceAt(move.to());
-            if (taken != null) {
-                takeScore += taken.getType().getValue();
-            }
-            final boolean toInCheck = board.isInCheck(move.to(), color);
-            if (toInCheck) {
-                takeScore -= piece.getType().getValue();
-            }
-            // Castle
-            if (board.getCastleMove() != null) {
-                castleScore = 2;
+        }
+        // Pieces
+        for (var entry : board.countPieces(color).entrySet()) {
+            features[PIECE] += entry.getKey().getValue() * entry.getValue();
+        }
+        for (var entry : board.countPieces(enemy).entrySet()) {
+            features[COUNTER_PIECE] += entry.getKey().getValue() * entry.getValue();
+        }
+        // Cover
+        for (var square : ChessSquare.values()) {
+            final var coveredPiece = board.getPieceAt(square);
+            if (coveredPiece == null || coveredPiece.color != color) continue;
+            if (board.isInCheck(square, enemy)) {
+                features[COVER] += coveredPiece.type.value;
             } else {
-                castleScore = (board.canCastleKingside(color) ? 1 : 0)
-                    - (board.canCastleKingside(enemy) ? 1 : 0)
-                    + (board.canCastleQueenside(color) ? 1 : 0)
-                    - (board.canCastleQueenside(enemy) ? 1 : 0);
+                features[COVER] -= coveredPiece.type.value;
             }
-            // Final score
-            total = controlScore * 3 - counterControlScore
-                + (attackScore - counterAttackScore) * 10
-                + (pieceScore - counterPieceScore) * 10
-                + takeScore * 15
-                + coverScore
-                + castleScore * 5;
+        }
+        // Taking
+        final var taken = turn.getBoard().getPieceAt(move.to());
+        if (taken != null) {
+            features[TAKE] += taken.getType().getValue();
+        }
+        final boolean toInCheck = board.isInCheck(move.to(), color);
+        if (toInCheck) {
+            features[TAKE] -= piece.getType().getValue();
+        }
+        // Castle
+        if (board.getCastleMove() != null) {
+            features[CASTLE] = 2;
+        } else {
+            features[CASTLE] = (board.canCastleKingside(color) ? 1 : 0)
+                - (board.canCastleKingside(enemy) ? 1 : 0)
+                + (board.canCastleQueenside(color) ? 1 : 0)
+                - (board.canCastleQueenside(enemy) ? 1 : 0);
+        }
+        return features;
+    }
+
+    @Data
+    @RequiredArgsConstructor
+    private static final class Consideration {
+        final ChessMove move;
+        int[] features;
+        int total;
+
+        private void compute(ChessTurn turn, ChessBoard board, DummyWeights weights) {
+            features = DummyAI.getFeatures(turn, move, board);
+            total = weights.score(features);
         }
     }
 }
@@ -0,0 +1,109 @@
+package com.cavetale.chess.ai;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The weights DummyAI multiplies its features with to score a move.
+ * They can be stored in a properties file, one weight per feature,
+ * and are immutable, so one instance may be shared by all boards.
+ */
+public final class DummyWeights {
+    public static final DummyWeights DEFAULT = new DummyWeights(Arrays.stream(Feature.values())
+                                                                .mapToInt(Feature::getDefaultWeight)
+                                                                .toArray());
+    private final int[] weights;
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Feature {
+        CONTROL("control", 3),
+        COUNTER_CONTROL("counterControl", -1),
+        ATTACK("attack", 10),
+        COUNTER_ATTACK("counterAttack", -10),
+        PIECE("piece", 10),
+        COUNTER_PIECE("counterPiece", -10),
+        COVER("cover", 1),
+        TAKE("take", 15),
+        CASTLE("castle", 5);
+
+        private final String key;
+        private final int defaultWeight;
+    }
+
+    public DummyWeights(final int[] weights) {
+        if (weights.length != Feature.values().length) {
+            throw new IllegalArgumentException("Expected " + Feature.values().length + " weights: " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    public int get(Feature feature) {
+        return weights[feature.ordinal()];
+    }
+
+    public int[] toArray() {
+        return weights.clone();
+    }
+
+    /**
+     * Score a feature vector, see DummyAI.getFeatures().
+     */
+    public int score(int[] features) {
+        int result = 0;
+        for (int i = 0; i < weights.length; i += 1) {
+            result += weights[i] * features[i];
+        }
+        return result;
+    }
+
+    /**
+     * Load weights from a properties file.  Missing keys keep their
+     * default weight.
+     */
+    public static DummyWeights load(File file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        final int[] result = DEFAULT.toArray();
+        for (Feature feature : Feature.values()) {
+            final String value = properties.getProperty(feature.key);
+            if (value == null) continue;
+            try {
+                result[feature.ordinal()] = Integer.parseInt(value.trim());
+            } catch (NumberFormatException nfe) {
+                throw new IOException(file + ": Invalid " + feature.key + ": " + value);
+            }
+        }
+        return new DummyWeights(result);
+    }
+
+    public void save(File file, String comment) throws IOException {
+        final Properties properties = new Properties();
+        for (Feature feature : Feature.values()) {
+            properties.setProperty(feature.key, "" + weights[feature.ordinal()]);
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.store(writer, comment);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (Feature feature : Feature.values()) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(feature.key).append('=').append(weights[feature.ordinal()]);
+        }
+        return sb.toString();
+    }
+}
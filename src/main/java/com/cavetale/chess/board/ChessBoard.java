@@ -5,6 +5,7 @@ import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import lombok.Data;
 
 @Data
@@ -23,6 +24,8 @@ public final class ChessBoard {
     private ChessSquare enPassantTaken;
 
     public static final String FEN_START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    /** The half move clock at which the game is drawn. */
+    public static final int DRAW_HALF_MOVE_CLOCK = 50;
 
     public ChessBoard() { }
 
@@ -423,6 +426,33 @@ public final class ChessBoard {
             && canCastleQueenside() == other.canCastleQueenside();
     }
 
+    /**
+     * Hash everything that isRepetitionOf() compares.  Two boards
+     * which are repetitions of each other share the same hash.  The
+     * hash is persisted with game snapshots and must therefore stay
+     * stable across restarts.
+     */
+    public long getRepetitionHash() {
+        long result = 0L;
+        for (int i = 0; i < 64; i += 1) {
+            if (board[i] == null) continue;
+            result ^= REPETITION_KEYS[i * 12 + board[i].ordinal()];
+        }
+        if (activeColor == ChessColor.BLACK) {
+            result ^= REPETITION_KEYS[768];
+        }
+        if (enPassantSquare != null) {
+            result ^= REPETITION_KEYS[769 + enPassantSquare.ordinal()];
+        }
+        if (canCastleKingside()) {
+            result ^= REPETITION_KEYS[833];
+        }
+        if (canCastleQueenside()) {
+            result ^= REPETITION_KEYS[834];
+        }
+        return result;
+    }
+
     public void loadStartingPosition() {
         loadFenString(FEN_START);
     }
@@ -820,6 +850,15 @@ public final class ChessBoard {
                                                           new Vec2i(-1, 1),
                                                           new Vec2i(0, 1));
 
+    private static final long[] REPETITION_KEYS = new long[835];
+
+    static {
+        final Random random = new Random(0x43686573734CL);
+        for (int i = 0; i < REPETITION_KEYS.length; i += 1) {
+            REPETITION_KEYS[i] = random.nextLong();
+        }
+    }
+
     public static final List<ChessPieceType> PROMOTION_PIECES = List.of(ChessPieceType.QUEEN,
                                                                         ChessPieceType.ROOK,
                                                                         ChessPieceType.BISHOP,
@@ -1,74 +1,391 @@
 package com.cavetale.chess.board;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
-import java.util.function.Consumer;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 @Data
 public final class ChessGame {
+    /**
+     * Every turn of the game.  This is null while the game was loaded
+     * from a snapshot and the past turns were not yet needed.  Use
+     * getTurns() which will reconstruct them.
+     */
     private List<ChessTurn> turns;
     private ChessTurn currentTurn;
+    /** The repetition hash of every turn so far. */
+    private List<Long> repetitionHashes;
+    /** The starting position, or null for the regular one. */
+    private String startFen;
     private LocalDate startTime = LocalDate.now();
     private String eventName = "Cavetale Chess";
     private String siteName = "cavetale.com";
     private int roundNumber = 0;
     private String whiteName = "Unknown";
     private String blackName = "Unknown";
+    // Snapshot state, see loadSnapshot()
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private List<ChessMove> snapshotMoves;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String snapshotPgn;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private int snapshotPgnMoveCount;
+    private static final int BINARY_VERSION = 1;
 
     public ChessGame() { }
 
     public void initialize() {
-        turns = new ArrayList<>();
         final ChessBoard board = new ChessBoard();
         board.loadStartingPosition();
-        currentTurn = new ChessTurn(null, board);
-        turns.add(currentTurn);
-        currentTurn.fillCache();
-    }
-
-    public int getMoveCount() {
-        return turns.size() - 1;
+        startFen = null;
+        start(board);
     }
 
     public void loadFenString(String fen) {
-        turns = new ArrayList<>();
         final ChessBoard board = new ChessBoard();
         board.loadFenString(fen);
+        startFen = fen;
+        start(board);
+    }
+
+    private void start(ChessBoard board) {
+        turns = new ArrayList<>();
+        repetitionHashes = new ArrayList<>();
+        snapshotMoves = null;
+        snapshotPgn = null;
         currentTurn = new ChessTurn(null, board);
         turns.add(currentTurn);
+        repetitionHashes.add(board.getRepetitionHash());
         currentTurn.fillCache();
     }
 
+    public int getMoveCount() {
+        return repetitionHashes.size() - 1;
+    }
+
     public ChessBoard getCurrentBoard() {
         return currentTurn.getBoard();
     }
 
+    /**
+     * Get all turns of the game, reconstructing them first if the
+     * game was loaded from a snapshot.
+     */
+    public List<ChessTurn> getTurns() {
+        if (turns == null) replaySnapshotMoves();
+        return turns;
+    }
+
     public boolean move(final ChessMove move) {
         if (currentTurn.getState().isGameOver()) return false;
         final ChessBoard nextBoard = currentTurn.getLegalMoves().get(move);
         if (nextBoard == null) return false;
         currentTurn.setNextMove(move);
         currentTurn = new ChessTurn(move, nextBoard);
-        turns.add(currentTurn);
+        if (turns != null) {
+            turns.add(currentTurn);
+        } else {
+            snapshotMoves.add(move);
+        }
+        final long hash = nextBoard.getRepetitionHash();
+        repetitionHashes.add(hash);
         currentTurn.fillCache();
         if (!currentTurn.getState().isGameOver()) {
-            int repetitionCount = 1;
-            for (ChessTurn oldTurn : turns) {
-                if (oldTurn == currentTurn) continue;
-                if (currentTurn.getBoard().isRepetitionOf(oldTurn.getBoard())) {
-                    repetitionCount += 1;
-                }
-            }
-            if (repetitionCount >= 3) {
+            if (countRepetitions(hash) >= 3) {
                 currentTurn.setDrawByRepetition();
             }
         }
         return true;
     }
 
+    /**
+     * Count how often a position occurs in this game, including the
+     * board itself.  The board may or may not be part of this game.
+     */
+    public int countRepetitions(ChessBoard board) {
+        return 1 + countRepetitions(board.getRepetitionHash());
+    }
+
+    private int countRepetitions(long hash) {
+        int result = 0;
+        for (long it : repetitionHashes) {
+            if (it == hash) result += 1;
+        }
+        return result;
+    }
+
+    public ChessGameSnapshot toSnapshot() {
+        final ChessGameSnapshot result = new ChessGameSnapshot();
+        result.setStartFen(startFen);
+        result.setFen(getCurrentBoard().toFenString());
+        final List<ChessMove> moves = getMoveList();
+        final ByteBuffer buffer = ByteBuffer.allocate(moves.size() * 2);
+        for (ChessMove move : moves) {
+            buffer.putShort((short) move.pack());
+        }
+        result.setMoves(Base64.getEncoder().encodeToString(buffer.array()));
+        final long[] hashes = new long[repetitionHashes.size()];
+        for (int i = 0; i < hashes.length; i += 1) {
+            hashes[i] = repetitionHashes.get(i);
+        }
+        result.setRepetitionHashes(hashes);
+        result.setEventName(eventName);
+        result.setSiteName(siteName);
+        result.setDate(startTime.toString());
+        result.setRoundNumber(roundNumber);
+        result.setWhiteName(whiteName);
+        result.setBlackName(blackName);
+        return result;
+    }
+
+    /**
+     * Load a snapshot.  Only the current turn is restored right away.
+     * Past turns are reconstructed once getTurns() is called.
+     *
+     * @param snapshot the snapshot
+     * @param pgn the PGN which was saved along with the snapshot,
+     *   or null.  It will be returned by toPgnString() until the
+     *   game changes, so it must belong to the same game!
+     * @throws IllegalArgumentException if the snapshot is invalid
+     */
+    public void loadSnapshot(ChessGameSnapshot snapshot, String pgn) {
+        if (snapshot.getFen() == null || snapshot.getMoves() == null || snapshot.getRepetitionHashes() == null) {
+            throw new IllegalArgumentException("Incomplete snapshot");
+        }
+        final byte[] bytes = Base64.getDecoder().decode(snapshot.getMoves());
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final List<ChessMove> moves = new ArrayList<>(bytes.length / 2);
+        while (buffer.remaining() >= 2) {
+            moves.add(ChessMove.unpack(buffer.getShort() & 0xFFFF));
+        }
+        if (snapshot.getRepetitionHashes().length != moves.size() + 1) {
+            throw new IllegalArgumentException("Snapshot has " + moves.size() + " moves"
+                                               + " but " + snapshot.getRepetitionHashes().length + " hashes");
+        }
+        final ChessBoard board = new ChessBoard();
+        board.loadFenString(snapshot.getFen());
+        if (snapshot.getStartFen() != null) {
+            // Validate now rather than in replaySnapshotMoves()
+            new ChessBoard().loadFenString(snapshot.getStartFen());
+        }
+        final List<Long> hashes = new ArrayList<>(moves.size() + 1);
+        for (long hash : snapshot.getRepetitionHashes()) {
+            hashes.add(hash);
+        }
+        restore(snapshot.getStartFen(), moves, board, hashes);
+        if (snapshot.getEventName() != null) eventName = snapshot.getEventName();
+        if (snapshot.getSiteName() != null) siteName = snapshot.getSiteName();
+        if (snapshot.getDate() != null) {
+            try {
+                startTime = LocalDate.parse(snapshot.getDate());
+            } catch (DateTimeParseException dtpe) { }
+        }
+        roundNumber = snapshot.getRoundNumber();
+        if (snapshot.getWhiteName() != null) whiteName = snapshot.getWhiteName();
+        if (snapshot.getBlackName() != null) blackName = snapshot.getBlackName();
+        snapshotPgn = pgn;
+        snapshotPgnMoveCount = moves.size();
+    }
+
+    /**
+     * Restore the game from its list of moves, without creating the
+     * past turns.  Used by loadSnapshot() and loadBinary().
+     */
+    private void restore(String theStartFen, List<ChessMove> moves, ChessBoard board, List<Long> hashes) {
+        startFen = theStartFen;
+        turns = null;
+        snapshotMoves = moves;
+        snapshotPgn = null;
+        currentTurn = new ChessTurn(moves.isEmpty() ? null : moves.get(moves.size() - 1), board);
+        currentTurn.fillCache();
+        repetitionHashes = hashes;
+        if (!currentTurn.getState().isGameOver() && countRepetitions(board.getRepetitionHash()) >= 3) {
+            currentTurn.setDrawByRepetition();
+        }
+    }
+
+    /**
+     * Encode this game in a compact binary format.  After a small
+     * header, each move is stored as one byte: its index in the
+     * ordered list of legal moves, see getOrderedMoves().
+     */
+    public byte[] toBinary() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(BINARY_VERSION);
+            out.writeByte(startFen != null ? 1 : 0);
+            if (startFen != null) out.writeUTF(startFen);
+            out.writeUTF(eventName);
+            out.writeUTF(siteName);
+            out.writeInt((int) startTime.toEpochDay());
+            out.writeShort(roundNumber);
+            out.writeUTF(whiteName);
+            out.writeUTF(blackName);
+            // The final state may not follow from the moves alone
+            out.writeByte(currentTurn.getState().ordinal());
+            final ChessColor loser = currentTurn.getResignation() != null
+                ? currentTurn.getResignation()
+                : currentTurn.getAbandonment();
+            out.writeByte(loser != null ? loser.ordinal() + 1 : 0);
+            final List<ChessTurn> list = getTurns();
+            out.writeShort(list.size() - 1);
+            for (ChessTurn turn : list) {
+                final ChessMove move = turn.getNextMove();
+                if (move == null) break;
+                out.writeByte(getOrderedMoves(turn.getLegalMoves()).indexOf(move));
+            }
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Load a game which was encoded with toBinary().  Like
+     * loadSnapshot(), the past turns are only reconstructed when
+     * needed.
+     * @throws IllegalArgumentException if the data is invalid
+     */
+    public void loadBinary(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            final int version = in.readUnsignedByte();
+            if (version != BINARY_VERSION) {
+                throw new IllegalArgumentException("Unknown binary version: " + version);
+            }
+            final int flags = in.readUnsignedByte();
+            final String theStartFen = (flags & 1) != 0 ? in.readUTF() : null;
+            final String theEventName = in.readUTF();
+            final String theSiteName = in.readUTF();
+            final LocalDate theStartTime = LocalDate.ofEpochDay(in.readInt());
+            final int theRoundNumber = in.readUnsignedShort();
+            final String theWhiteName = in.readUTF();
+            final String theBlackName = in.readUTF();
+            final int stateIndex = in.readUnsignedByte();
+            final int loserIndex = in.readUnsignedByte();
+            if (stateIndex >= ChessTurnState.values().length || loserIndex > ChessColor.values().length) {
+                throw new IllegalArgumentException("Invalid final state: " + stateIndex + "/" + loserIndex);
+            }
+            final ChessTurnState finalState = ChessTurnState.values()[stateIndex];
+            final ChessColor loser = loserIndex > 0 ? ChessColor.values()[loserIndex - 1] : null;
+            final int moveCount = in.readUnsignedShort();
+            ChessBoard board = new ChessBoard();
+            if (theStartFen != null) {
+                board.loadFenString(theStartFen);
+            } else {
+                board.loadStartingPosition();
+            }
+            final List<ChessMove> moves = new ArrayList<>(moveCount);
+            final List<Long> hashes = new ArrayList<>(moveCount + 1);
+            hashes.add(board.getRepetitionHash());
+            for (int i = 0; i < moveCount; i += 1) {
+                final Map<ChessMove, ChessBoard> legalMoves = board.getLegalMoves();
+                final List<ChessMove> orderedMoves = getOrderedMoves(legalMoves);
+                final int index = in.readUnsignedByte();
+                if (index >= orderedMoves.size()) {
+                    throw new IllegalArgumentException("Illegal move index " + index + " at " + board.toFenString());
+                }
+                final ChessMove move = orderedMoves.get(index);
+                moves.add(move);
+                board = legalMoves.get(move);
+                hashes.add(board.getRepetitionHash());
+            }
+            restore(theStartFen, moves, board, hashes);
+            eventName = theEventName;
+            siteName = theSiteName;
+            startTime = theStartTime;
+            roundNumber = theRoundNumber;
+            whiteName = theWhiteName;
+            blackName = theBlackName;
+            if (!currentTurn.getState().isGameOver()) {
+                switch (finalState) {
+                case RESIGNATION:
+                    if (loser != null) currentTurn.resign(loser);
+                    break;
+                case ABANDONED:
+                    if (loser != null) currentTurn.abandon(loser);
+                    break;
+                case TIMEOUT: case TIMEOUT_DRAW:
+                    currentTurn.setTimeout();
+                    break;
+                case DRAW_BY_AGREEMENT:
+                    currentTurn.setAggreeToDraw();
+                    break;
+                default: break;
+                }
+            }
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("Truncated binary game", ioe);
+        }
+    }
+
+    /**
+     * The legal moves in the canonical order used by the binary
+     * format.
+     */
+    private static List<ChessMove> getOrderedMoves(Map<ChessMove, ChessBoard> legalMoves) {
+        final List<ChessMove> result = new ArrayList<>(legalMoves.keySet());
+        result.sort(Comparator.comparingInt(ChessMove::pack));
+        return result;
+    }
+
+    /**
+     * Rebuild the past turns from the moves of a snapshot.  The
+     * boards are computed, the caches of each turn are filled on
+     * demand.
+     */
+    private void replaySnapshotMoves() {
+        final List<ChessTurn> list = new ArrayList<>(snapshotMoves.size() + 1);
+        ChessBoard board = new ChessBoard();
+        if (startFen != null) {
+            board.loadFenString(startFen);
+        } else {
+            board.loadStartingPosition();
+        }
+        ChessMove previousMove = null;
+        for (ChessMove move : snapshotMoves) {
+            final ChessTurn turn = new ChessTurn(previousMove, board);
+            turn.setNextMove(move);
+            list.add(turn);
+            board = board.clone();
+            board.move(move);
+            previousMove = move;
+        }
+        list.add(currentTurn);
+        turns = list;
+        snapshotMoves = null;
+    }
+
+    /**
+     * Get the list of moves made in this game, without reconstructing
+     * the past turns.
+     */
+    public List<ChessMove> getMoveList() {
+        if (turns == null) return List.copyOf(snapshotMoves);
+        final List<ChessMove> result = new ArrayList<>(turns.size());
+        for (ChessTurn turn : turns) {
+            if (turn.getNextMove() == null) break;
+            result.add(turn.getNextMove());
+        }
+        return result;
+    }
+
     private static String escape(String in) {
         return in.replace("\"", "\\\"")
             .replace("\n", "\\n")
@@ -76,6 +393,9 @@ public final class ChessGame {
     }
 
     public String toPgnString() {
+        if (snapshotPgn != null && snapshotPgnMoveCount == getMoveCount() && snapshotPgn.endsWith(getResultPgn())) {
+            return snapshotPgn;
+        }
         StringBuilder sb = new StringBuilder();
         sb.append("[Event \"" + escape(eventName) + "\"]\n");
         sb.append("[Site \"" + escape(siteName) + "\"]\n");
@@ -84,11 +404,17 @@ public final class ChessGame {
         sb.append("[White \"" + escape(whiteName) + "\"]\n");
         sb.append("[Black \"" + escape(blackName) + "\"]\n");
         sb.append("[Result \"" + getResultPgn() + "\"]\n");
+        if (startFen != null) {
+            sb.append("[SetUp \"1\"]\n");
+            sb.append("[FEN \"" + startFen + "\"]\n");
+        }
         sb.append("\n");
         final var list = new ArrayList<String>();
-        for (var turn : turns) {
+        for (var turn : getTurns()) {
             if (turn.getNextMove() == null) break;
-            if (turn.getBoard().getActiveColor() == ChessColor.WHITE) {
+            if (turn.getPreviousMove() == null && turn.getBoard().getActiveColor() == ChessColor.BLACK) {
+                list.add(turn.getBoard().getFullMoveClock() + "...");
+            } else if (turn.getBoard().getActiveColor() == ChessColor.WHITE) {
                 list.add(turn.getBoard().getFullMoveClock() + ".");
             }
             list.add(turn.getMoveText(turn.getNextMove()));
@@ -110,133 +436,66 @@ public final class ChessGame {
         }
     }
 
+    /**
+     * Load the first game in a PGN string.
+     * See ChessPgnReader to read multiple games from a stream.
+     * @throws IllegalArgumentException if the PGN is invalid
+     */
     public void loadPgnString(String pgn) {
-        turns = new ArrayList<>();
-        final ChessBoard board = new ChessBoard();
-        board.loadStartingPosition();
-        currentTurn = new ChessTurn(null, board);
-        turns.add(currentTurn);
-        currentTurn.fillCache();
-        for (String line : pgn.split("\n")) {
-            if (line.startsWith("[")) {
-                loadIf(line, "Event", this::setEventName);
-                loadIf(line, "Site", this::setSiteName);
-                loadIf(line, "Date", string -> {
-                        String[] fields = string.split("\\.");
-                        if (fields.length != 3) return;
-                        try {
-                            int year = Integer.parseInt(fields[0]);
-                            int month = Integer.parseInt(fields[1]);
-                            int day = Integer.parseInt(fields[2]);
-                            startTime = LocalDate.of(year, month, day);
-                        } catch (NumberFormatException nfe) { }
-                    });
-                loadIf(line, "Round", string -> {
-                        if (string.equals("-")) {
-                            roundNumber = 0;
-                        } else {
-                            try {
-                                roundNumber = Integer.parseInt(string);
-                            } catch (NumberFormatException nfe) { }
-                        }
-                    });
-                loadIf(line, "White", this::setWhiteName);
-                loadIf(line, "Black", this::setBlackName);
-                continue;
-            }
-            if (line.startsWith(";")) continue;
-            if (line.startsWith("{")) continue;
-            if (line.isEmpty()) continue;
-            loadPgnLine(line);
+        try (ChessPgnReader reader = new ChessPgnReader(new StringReader(pgn))) {
+            reader.readGame(this);
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
         }
     }
 
-    private boolean loadIf(String line, String key, Consumer<String> setter) {
-        if (!line.startsWith("[" + key)) return false;
-        if (!line.endsWith("]")) return false;
-        final int start = line.indexOf("\"");
-        if (start < 0) return false;
-        final int stop = line.lastIndexOf("\"");
-        if (stop < 0) return false;
-        setter.accept(line.substring(start + 1, stop));
-        return true;
-    }
-
-    private void loadPgnLine(String line) {
-        while (!line.isEmpty()) {
-            if (line.charAt(0) == ' ') {
-                line = line.substring(1);
-            } else if (line.charAt(0) == ('{')) {
-                line = crawlComment(line);
-            } else {
-                final int spaceIndex = line.indexOf(' ');
-                final String token;
-                if (spaceIndex < 0) {
-                    token = line;
-                    line = "";
-                } else {
-                    token = line.substring(0, spaceIndex);
-                    line = line.substring(spaceIndex + 1);
-                }
-                if (token.endsWith(".")) {
-                    try {
-                        final int turnNumber = Integer.parseInt(token.substring(0, token.length() - 1));
-                        if (turnNumber != currentTurn.getBoard().getFullMoveClock()) {
-                            throw new IllegalArgumentException("Bad turn number: " + turnNumber);
-                        }
-                    } catch (NumberFormatException nfe) {
-                        throw new IllegalArgumentException("Invalid movetext: " + token);
-                    }
-                } else if (token.equals("*")
-                           || token.equals("1/2-1/2")
-                           || token.equals("1-0")
-                           || token.equals("0-1")) {
-                    continue;
-                } else {
-                    parseMoveText(token);
-                }
-            }
+    /**
+     * Apply one PGN tag pair.  Unknown tags are ignored.
+     */
+    public void loadPgnTag(String key, String value) {
+        switch (key) {
+        case "Event":
+            eventName = value;
+            break;
+        case "Site":
+            siteName = value;
+            break;
+        case "Date": {
+            String[] fields = value.split("\\.");
+            if (fields.length != 3) return;
+            try {
+                int year = Integer.parseInt(fields[0]);
+                int month = Integer.parseInt(fields[1]);
+                int day = Integer.parseInt(fields[2]);
+                startTime = LocalDate.of(year, month, day);
+            } catch (NumberFormatException | DateTimeException e) { }
+            break;
         }
-    }
-
-    private void parseMoveText(String token) {
-        final var move = currentTurn.getMoveTexts().get(token);
-        if (move == null) {
-            throw new IllegalArgumentException("Illegal move: "
-                                               + getCurrentBoard().getFullMoveClock()
-                                               + (getCurrentBoard().getActiveColor() == ChessColor.WHITE
-                                                  ? ". "
-                                                  : "... ")
-                                               + token);
-        }
-        move(move);
-    }
-
-    private String crawlComment(String line) {
-        int depth = 0;
-        int index;
-        for (index = 0; index < line.length(); index += 1) {
-            final char c = line.charAt(index);
-            switch (c) {
-            case '{':
-                depth += 1;
-                break;
-            case '}':
-                depth -= 1;
-                if (depth == 0) {
-                    return line.substring(index + 1);
-                }
-                break;
-            default: break;
+        case "Round":
+            if (value.equals("-")) {
+                roundNumber = 0;
+            } else {
+                try {
+                    roundNumber = Integer.parseInt(value);
+                } catch (NumberFormatException nfe) { }
             }
+            break;
+        case "White":
+            whiteName = value;
+            break;
+        case "Black":
+            blackName = value;
+            break;
+        case "FEN":
+            loadFenString(value);
+            break;
+        default: break;
         }
-        // End of line?
-        return "";
     }
 
     public String toLichessAnalysisUrl() {
         final var joiner = new StringJoiner("_", "https://lichess.org/analysis/pgn/", "");
-        for (var turn : turns) {
+        for (var turn : getTurns()) {
             final var move = turn.getNextMove();
             if (move == null) break;
             final var moveString = turn.getMoveText(move)
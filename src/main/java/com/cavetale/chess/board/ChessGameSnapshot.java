@@ -0,0 +1,30 @@
+package com.cavetale.chess.board;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * A compact snapshot of a ChessGame.  Restoring it only requires
+ * parsing the current FEN, instead of replaying every move like a
+ * PGN file does.
+ *
+ * See ChessGame#toSnapshot and ChessGame#loadSnapshot.
+ */
+@Data
+public final class ChessGameSnapshot implements Serializable {
+    /** The starting position, or null for the regular one. */
+    private String startFen;
+    /** The current position. */
+    private String fen;
+    /** Every move, packed via ChessMove#pack into 2 bytes, Base64. */
+    private String moves;
+    /** The repetition hash of every position, including the start. */
+    private long[] repetitionHashes;
+    // Headers
+    private String eventName;
+    private String siteName;
+    private String date;
+    private int roundNumber;
+    private String whiteName;
+    private String blackName;
+}
@@ -10,6 +10,27 @@ public record ChessMove(ChessSquare from, ChessSquare to, ChessPieceType promoti
         return from.name + to.name + (promotion != null ? "" + promotion.lowerLetter : "");
     }
 
+    /**
+     * Pack this move into 15 bits: 6 bits origin, 6 bits
+     * destination, 3 bits promotion.
+     */
+    public int pack() {
+        return from.ordinal()
+            | (to.ordinal() << 6)
+            | ((promotion != null ? promotion.ordinal() + 1 : 0) << 12);
+    }
+
+    public static ChessMove unpack(int packed) {
+        final ChessSquare[] squares = ChessSquare.values();
+        final int promotionIndex = (packed >> 12) & 7;
+        if (promotionIndex > ChessPieceType.values().length) {
+            throw new IllegalArgumentException("Invalid packed move: " + packed);
+        }
+        return new ChessMove(squares[packed & 63],
+                             squares[(packed >> 6) & 63],
+                             (promotionIndex > 0 ? ChessPieceType.values()[promotionIndex - 1] : null));
+    }
+
     public static ChessMove fromString(String in) {
         if (in.length() != 4 && in.length() != 5) return null;
         final ChessSquare a = ChessSquare.ofName(in.substring(0, 2));
@@ -0,0 +1,337 @@
+package com.cavetale.chess.board;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * Read PGN games one at a time from a stream.  Files with many
+ * games are read lazily: each call to readGame() parses only the
+ * next game, so large archives never have to be held in memory.
+ *
+ * Comments, variations, NAGs and escape lines are skipped.  Move
+ * text may carry annotations like "!" or "?".  With a ply limit,
+ * the moves after it are skipped without being parsed.
+ */
+public final class ChessPgnReader implements Closeable {
+    private static final int NONE = -2;
+    private final Reader reader;
+    private final StringBuilder token = new StringBuilder();
+    private int peeked = NONE;
+    private int previous = '\n';
+    private int beforePrevious = '\n';
+    private int maxPly = Integer.MAX_VALUE;
+
+    public ChessPgnReader(final Reader reader) {
+        this.reader = reader instanceof BufferedReader
+            ? reader
+            : new BufferedReader(reader);
+    }
+
+    public ChessPgnReader(final InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Only read the first moves of each game.
+     * @param plies the number of half moves to read
+     */
+    public void setMaxPly(int plies) {
+        this.maxPly = plies;
+    }
+
+    /**
+     * Read the next game.
+     * @return the game, or null if the end of the stream was reached
+     * @throws IllegalArgumentException if the game is invalid.  The
+     *   rest of the game will be skipped, so the next call can read
+     *   the following game.
+     */
+    public ChessGame readGame() throws IOException {
+        final ChessGame game = new ChessGame();
+        return readGame(game) ? game : null;
+    }
+
+    /**
+     * Read the next game into an existing game, which is
+     * initialized first.
+     * @return true if a game was read, false if the end of the
+     *   stream was reached
+     * @throws IllegalArgumentException if the game is invalid, see
+     *   readGame()
+     */
+    public boolean readGame(ChessGame game) throws IOException {
+        game.initialize();
+        boolean found = false;
+        boolean inMoveText = false;
+        int plies = 0;
+        while (true) {
+            final int c = skipWhitespaceAndComments();
+            if (c < 0) return found;
+            found = true;
+            if (c == '[') {
+                if (inMoveText) {
+                    // A new game begins without a result
+                    peeked = c;
+                    return true;
+                }
+                try {
+                    readTag(game::loadPgnTag);
+                } catch (IllegalArgumentException iae) {
+                    skipGame();
+                    throw iae;
+                }
+                continue;
+            }
+            inMoveText = true;
+            readToken(c);
+            if (isResult()) return true;
+            try {
+                if (readMoveText(game)) plies += 1;
+            } catch (IllegalArgumentException iae) {
+                skipGame();
+                throw iae;
+            }
+            if (plies >= maxPly) {
+                skipGame();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int read() throws IOException {
+        final int c;
+        if (peeked != NONE) {
+            c = peeked;
+            peeked = NONE;
+        } else {
+            c = reader.read();
+        }
+        beforePrevious = previous;
+        previous = c;
+        return c;
+    }
+
+    /**
+     * Skip whitespace, comments, variations and NAGs.
+     * @return the next meaningful character, or -1
+     */
+    private int skipWhitespaceAndComments() throws IOException {
+        while (true) {
+            final int c = read();
+            if (c < 0) return c;
+            if (Character.isWhitespace(c)) continue;
+            switch (c) {
+            case '%':
+                if (beforePrevious != '\n') return c;
+                skipLine();
+                break;
+            case ';':
+                skipLine();
+                break;
+            case '{':
+                skipUntil('}');
+                break;
+            case '(':
+                skipVariation();
+                break;
+            case '$':
+                readToken(c);
+                break;
+            default: return c;
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        while (true) {
+            final int c = read();
+            if (c < 0 || c == '\n') return;
+        }
+    }
+
+    private void skipUntil(int end) throws IOException {
+        while (true) {
+            final int c = read();
+            if (c < 0 || c == end) return;
+        }
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            final int c = read();
+            switch (c) {
+            case -1: return;
+            case '(': depth += 1; break;
+            case ')': depth -= 1; break;
+            case '{': skipUntil('}'); break;
+            case ';': skipLine(); break;
+            default: break;
+            }
+        }
+    }
+
+    /**
+     * Skip the remainder of a broken game, up to its result or the
+     * tags of the next game.
+     */
+    private void skipGame() throws IOException {
+        while (true) {
+            final int c = skipWhitespaceAndComments();
+            if (c < 0) return;
+            if (c == '[') {
+                peeked = c;
+                return;
+            }
+            readToken(c);
+            if (isResult()) return;
+        }
+    }
+
+    /**
+     * Read a token into the buffer, starting with the given
+     * character.
+     */
+    private void readToken(int first) throws IOException {
+        token.setLength(0);
+        token.append((char) first);
+        while (true) {
+            final int c = read();
+            if (c < 0) return;
+            if (Character.isWhitespace(c) || c == '{' || c == '(' || c == ')' || c == ';' || c == '[') {
+                peeked = c;
+                return;
+            }
+            token.append((char) c);
+        }
+    }
+
+    private boolean isResult() {
+        return contentEquals("*")
+            || contentEquals("1-0")
+            || contentEquals("0-1")
+            || contentEquals("1/2-1/2");
+    }
+
+    private boolean contentEquals(String value) {
+        if (token.length() != value.length()) return false;
+        for (int i = 0; i < value.length(); i += 1) {
+            if (token.charAt(i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read a tag pair after the opening bracket.
+     */
+    private void readTag(BiConsumer<String, String> callback) throws IOException {
+        token.setLength(0);
+        int c = skipWhitespaceAndComments();
+        while (c >= 0 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            token.append((char) c);
+            c = read();
+        }
+        final String key = token.toString();
+        while (c >= 0 && c != '"' && c != ']') c = read();
+        if (c != '"') {
+            throw new IllegalArgumentException("Invalid tag: " + key);
+        }
+        token.setLength(0);
+        while (true) {
+            c = read();
+            if (c < 0) {
+                throw new IllegalArgumentException("Unterminated tag: " + key);
+            } else if (c == '\\') {
+                c = read();
+                if (c < 0) continue;
+                token.append(c == 'n' ? '\n' : (char) c);
+            } else if (c == '"') {
+                break;
+            } else {
+                token.append((char) c);
+            }
+        }
+        skipUntil(']');
+        callback.accept(key, token.toString());
+    }
+
+    /**
+     * The token is a move number, a move, or a move number directly
+     * followed by a move, such as "1.e4".
+     * @return true if a move was made
+     */
+    private boolean readMoveText(ChessGame game) {
+        if (token.length() >= 3 && token.charAt(0) == '0' && token.charAt(1) == '-') {
+            // Castling written with zeros
+            applyMove(game, token.toString().replace('0', 'O'));
+            return true;
+        }
+        int index = 0;
+        int number = 0;
+        while (index < token.length() && Character.isDigit(token.charAt(index))) {
+            number = number * 10 + (token.charAt(index) - '0');
+            index += 1;
+        }
+        if (index > 0 && index < token.length() && token.charAt(index) == '.') {
+            if (number != game.getCurrentBoard().getFullMoveClock()) {
+                throw new IllegalArgumentException("Bad turn number: " + number);
+            }
+            while (index < token.length() && token.charAt(index) == '.') index += 1;
+            if (index == token.length()) return false;
+        } else if (index > 0) {
+            throw new IllegalArgumentException("Invalid movetext: " + token);
+        }
+        applyMove(game, token.substring(index));
+        return true;
+    }
+
+    private static void applyMove(ChessGame game, String moveText) {
+        final ChessMove move = findMove(game.getCurrentTurn(), moveText);
+        if (move == null || !game.move(move)) {
+            final ChessBoard board = game.getCurrentBoard();
+            throw new IllegalArgumentException("Illegal move: "
+                                               + board.getFullMoveClock()
+                                               + (board.getActiveColor() == ChessColor.WHITE
+                                                  ? ". "
+                                                  : "... ")
+                                               + moveText);
+        }
+    }
+
+    /**
+     * Find a move by its text.  Annotations and check symbols are
+     * not required to match.
+     */
+    private static ChessMove findMove(ChessTurn turn, String moveText) {
+        final ChessMove exact = turn.getMoveTexts().get(moveText);
+        if (exact != null) return exact;
+        final String stripped = stripSuffix(moveText);
+        for (var entry : turn.getMoveTexts().entrySet()) {
+            if (stripSuffix(entry.getKey()).equals(stripped)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String stripSuffix(String moveText) {
+        int end = moveText.length();
+        while (end > 0) {
+            final char c = moveText.charAt(end - 1);
+            if (c != '+' && c != '#' && c != '!' && c != '?') break;
+            end -= 1;
+        }
+        return moveText.substring(0, end);
+    }
+}
@@ -33,6 +33,31 @@ public final class ChessTurn {
         moveTexts = null;
     }
 
+    /**
+     * Turns which were reconstructed from a snapshot start out
+     * without their cache, which is filled on first use.
+     */
+    public Map<ChessMove, ChessBoard> getLegalMoves() {
+        if (legalMoves == null) {
+            legalMoves = board.getLegalMoves();
+        }
+        return legalMoves;
+    }
+
+    public Map<String, ChessMove> getMoveTexts() {
+        if (moveTexts == null) {
+            moveTexts = board.getMoveTexts(getLegalMoves());
+        }
+        return moveTexts;
+    }
+
+    public ChessTurnState getState() {
+        if (state == null) {
+            state = computeState();
+        }
+        return state;
+    }
+
     public void setDrawByRepetition() {
         state = ChessTurnState.DRAW_BY_REPETITION;
     }
@@ -56,14 +81,14 @@ public final class ChessTurn {
     }
 
     public String getMoveText(ChessMove move) {
-        for (var it : moveTexts.entrySet()) {
+        for (var it : getMoveTexts().entrySet()) {
             if (it.getValue().equals(move)) return it.getKey();
         }
         return null;
     }
 
     public ChessColor getWinner() {
-        if (!state.gameOver || state.draw) return null;
+        if (!getState().gameOver || state.draw) return null;
         if (resignation != null) return resignation.other();
         if (abandonment != null) return abandonment.other();
         return board.getActiveColor().other();
@@ -72,9 +97,9 @@ public final class ChessTurn {
     private ChessTurnState computeState() {
         final boolean check = board.isKingInCheck();
         if (resignation != null) return ChessTurnState.RESIGNATION;
-        if (check && legalMoves.isEmpty()) return ChessTurnState.CHECKMATE;
-        if (!check && legalMoves.isEmpty()) return ChessTurnState.STALEMATE;
-        if (board.getHalfMoveClock() >= 50) return ChessTurnState.DRAW_BY_FIFTY_MOVE_RULE;
+        if (check && getLegalMoves().isEmpty()) return ChessTurnState.CHECKMATE;
+        if (!check && getLegalMoves().isEmpty()) return ChessTurnState.STALEMATE;
+        if (board.getHalfMoveClock() >= ChessBoard.DRAW_HALF_MOVE_CLOCK) return ChessTurnState.DRAW_BY_FIFTY_MOVE_RULE;
         final var whiteCounts = board.countPieces(ChessColor.WHITE);
         final var blackCounts = board.countPieces(ChessColor.BLACK);
         if (isKingVsKing(whiteCounts, blackCounts)
@@ -0,0 +1,356 @@
+package com.cavetale.chess.console;
+
+import com.cavetale.chess.ai.ChessOpeningBook;
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessPgnReader;
+import com.cavetale.chess.board.ChessTurn;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Build an opening book from a PGN dump, such as the one written by
+ * /chessadmin export.  The dump is streamed one game at a time and
+ * the games are replayed by worker threads.  Each worker counts
+ * position and move pairs in a bounded map, which is sorted and
+ * spilled to a run file whenever it grows too large.  The runs are
+ * merged at the end into a Polyglot book, see ChessOpeningBook.
+ *
+ * The weight of a move is 2 for every win and 1 for every draw of
+ * the side which played it, the convention of Polyglot.
+ */
+public final class ChessBookBuilder {
+    /** Tells a worker that there are no more games. */
+    private static final Game END = new Game(null);
+    private File input;
+    private File output;
+    private File randomFile;
+    private File tmpFolder;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxPly = 24;
+    private int minCount = 3;
+    private int maxEntries = 1_000_000;
+    private long[] random64;
+    private final AtomicLong gameCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final List<File> runs = Collections.synchronizedList(new ArrayList<>());
+
+    public static void main(String[] args) throws Exception {
+        final ChessBookBuilder builder = new ChessBookBuilder();
+        for (int i = 0; i < args.length; i += 1) {
+            final String arg = args[i];
+            switch (arg) {
+            case "-i": case "--input":
+                builder.input = new File(args[++i]);
+                break;
+            case "-o": case "--output":
+                builder.output = new File(args[++i]);
+                break;
+            case "-r": case "--random":
+                builder.randomFile = new File(args[++i]);
+                break;
+            case "-t": case "--threads":
+                builder.threads = Integer.parseInt(args[++i]);
+                break;
+            case "-p": case "--plies":
+                builder.maxPly = Integer.parseInt(args[++i]);
+                break;
+            case "-m": case "--mincount":
+                builder.minCount = Integer.parseInt(args[++i]);
+                break;
+            case "-e": case "--entries":
+                builder.maxEntries = Integer.parseInt(args[++i]);
+                break;
+            default:
+                System.err.println("Illegal argument: " + arg);
+                System.exit(1);
+            }
+        }
+        if (builder.output == null) {
+            System.err.println("Usage: ChessBookBuilder [-i games.pgn] -o book.bin [-r random.bin]"
+                               + " [-t threads] [-p plies] [-m mincount] [-e entries]");
+            System.exit(1);
+        }
+        builder.run();
+    }
+
+    private void run() throws Exception {
+        random64 = randomFile != null
+            ? ChessOpeningBook.loadRandom64(randomFile)
+            : ChessOpeningBook.defaultRandom64();
+        final File parent = output.getAbsoluteFile().getParentFile();
+        tmpFolder = Files.createTempDirectory(parent.toPath(), "book").toFile();
+        final long start = System.currentTimeMillis();
+        final BlockingQueue<Game> queue = new ArrayBlockingQueue<>(1024);
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable ->
+            new Thread(runnable, "BookBuilder-" + threadCount.incrementAndGet()));
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i += 1) {
+            futures.add(executor.submit(() -> {
+                        work(queue);
+                        return null;
+                    }));
+        }
+        try (BufferedReader reader = new BufferedReader(input != null
+                                                        ? new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8)
+                                                        : new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            split(reader, text -> put(queue, new Game(text), futures));
+            for (int i = 0; i < threads; i += 1) put(queue, END, futures);
+            // Throws the first failure of a worker
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        System.err.println("Replayed " + gameCount + " games (" + errorCount + " errors) into "
+                           + runs.size() + " runs in " + (System.currentTimeMillis() - start) + "ms");
+        final long entries = merge();
+        for (File run : runs) run.delete();
+        tmpFolder.delete();
+        System.err.println("Wrote " + entries + " entries to " + output
+                           + " in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Receives the text of single games from split().
+     */
+    @FunctionalInterface
+    interface GameSink {
+        void accept(String text) throws InterruptedException, ExecutionException;
+    }
+
+    /**
+     * Split the stream into the text of single games, which begin
+     * with a tag line after some move text.
+     */
+    static void split(BufferedReader reader, GameSink sink) throws IOException, InterruptedException, ExecutionException {
+        StringBuilder sb = new StringBuilder();
+        boolean inMoveText = false;
+        while (true) {
+            final String line = reader.readLine();
+            if (line == null) break;
+            final boolean tag = line.startsWith("[");
+            if (tag && inMoveText) {
+                sink.accept(sb.toString());
+                sb = new StringBuilder();
+                inMoveText = false;
+            } else if (!tag && !line.isBlank()) {
+                inMoveText = true;
+            }
+            sb.append(line).append('\n');
+        }
+        if (inMoveText) sink.accept(sb.toString());
+    }
+
+    /**
+     * Wait for room in the queue.  A worker only returns early when
+     * it failed, and then nobody might take from the queue anymore,
+     * so its failure is thrown instead of waiting forever.
+     */
+    private static void put(BlockingQueue<Game> queue, Game game, List<Future<?>> futures) throws InterruptedException, ExecutionException {
+        while (!queue.offer(game, 100L, TimeUnit.MILLISECONDS)) {
+            for (Future<?> future : futures) {
+                if (!future.isDone()) continue;
+                future.get();
+                throw new IllegalStateException("Worker stopped early");
+            }
+        }
+    }
+
+    private record Game(String text) { }
+
+    private record Key(long key, int move) { }
+
+    private void work(BlockingQueue<Game> queue) throws IOException, InterruptedException {
+        final Map<Key, int[]> counts = new HashMap<>();
+        while (true) {
+            final Game next = queue.take();
+            if (next == END) break;
+            final String text = next.text();
+            final ChessGame game;
+            try {
+                final ChessPgnReader reader = new ChessPgnReader(new StringReader(text));
+                reader.setMaxPly(maxPly);
+                game = reader.readGame();
+            } catch (IllegalArgumentException iae) {
+                errorCount.incrementAndGet();
+                continue;
+            }
+            if (game == null) continue;
+            final ChessColor winner = getWinner(text);
+            final boolean draw = winner == null && text.contains("[Result \"1/2-1/2\"]");
+            final List<ChessTurn> turns = game.getTurns();
+            for (int ply = 0; ply < maxPly && ply < turns.size(); ply += 1) {
+                final ChessTurn turn = turns.get(ply);
+                final ChessMove move = turn.getNextMove();
+                if (move == null) break;
+                final ChessBoard board = turn.getBoard();
+                final Key key = new Key(ChessOpeningBook.getKey(board, random64),
+                                        ChessOpeningBook.encodeMove(board, move));
+                final int[] count = counts.computeIfAbsent(key, k -> new int[2]);
+                count[0] += 1;
+                if (winner == board.getActiveColor()) {
+                    count[1] += 2;
+                } else if (draw) {
+                    count[1] += 1;
+                }
+            }
+            gameCount.incrementAndGet();
+            if (counts.size() >= maxEntries) spill(counts);
+        }
+        if (!counts.isEmpty()) spill(counts);
+    }
+
+    static ChessColor getWinner(String text) {
+        if (text.contains("[Result \"1-0\"]")) return ChessColor.WHITE;
+        if (text.contains("[Result \"0-1\"]")) return ChessColor.BLACK;
+        return null;
+    }
+
+    private static int compare(long keyA, int moveA, long keyB, int moveB) {
+        final int result = Long.compareUnsigned(keyA, keyB);
+        return result != 0 ? result : Integer.compare(moveA, moveB);
+    }
+
+    /**
+     * Write the counts sorted to a new run file and clear them.
+     */
+    private void spill(Map<Key, int[]> counts) throws IOException {
+        final List<Map.Entry<Key, int[]>> list = new ArrayList<>(counts.entrySet());
+        list.sort((a, b) -> compare(a.getKey().key(), a.getKey().move(), b.getKey().key(), b.getKey().move()));
+        final File file = File.createTempFile("run", ".tmp", tmpFolder);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (var entry : list) {
+                out.writeLong(entry.getKey().key());
+                out.writeShort(entry.getKey().move());
+                out.writeInt(entry.getValue()[0]);
+                out.writeInt(entry.getValue()[1]);
+            }
+        }
+        counts.clear();
+        runs.add(file);
+    }
+
+    /**
+     * One open run file during the merge.
+     */
+    private static final class Run implements Comparable<Run> {
+        private final DataInputStream in;
+        private long key;
+        private int move;
+        private int count;
+        private int score;
+
+        Run(final File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+
+        boolean next() throws IOException {
+            try {
+                key = in.readLong();
+                move = in.readShort() & 0xFFFF;
+                count = in.readInt();
+                score = in.readInt();
+                return true;
+            } catch (EOFException eof) {
+                in.close();
+                return false;
+            }
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            return compare(key, move, other.key, other.move);
+        }
+    }
+
+    /**
+     * Merge all runs into the book.  The moves of one position are
+     * collected so their weights can be scaled down together if the
+     * largest one does not fit in 16 bits.
+     * @return the number of entries written
+     */
+    private long merge() throws IOException {
+        final PriorityQueue<Run> heap = new PriorityQueue<>();
+        for (File file : runs) {
+            final Run run = new Run(file);
+            if (run.next()) heap.add(run);
+        }
+        final File tmp = new File(tmpFolder, "book.bin");
+        long entries = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            final List<long[]> position = new ArrayList<>(); // {move, weight}
+            long positionKey = 0L;
+            while (!heap.isEmpty()) {
+                final Run run = heap.poll();
+                final long key = run.key;
+                final int move = run.move;
+                long count = run.count;
+                long score = run.score;
+                if (run.next()) heap.add(run);
+                while (!heap.isEmpty() && heap.peek().key == key && heap.peek().move == move) {
+                    final Run same = heap.poll();
+                    count += same.count;
+                    score += same.score;
+                    if (same.next()) heap.add(same);
+                }
+                if (key != positionKey) {
+                    entries += writePosition(out, positionKey, position);
+                    positionKey = key;
+                }
+                if (count >= minCount && score > 0) position.add(new long[] {move, score});
+            }
+            entries += writePosition(out, positionKey, position);
+        }
+        Files.move(tmp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return entries;
+    }
+
+    private static int writePosition(DataOutputStream out, long key, List<long[]> moves) throws IOException {
+        if (moves.isEmpty()) return 0;
+        long max = 0;
+        for (long[] it : moves) max = Math.max(max, it[1]);
+        final int result = moves.size();
+        for (long[] it : moves) {
+            final long weight = max > 0xFFFF
+                ? Math.max(1L, it[1] * 0xFFFF / max)
+                : it[1];
+            out.writeLong(key);
+            out.writeShort((int) it[0]);
+            out.writeShort((int) weight);
+            out.writeInt(0);
+        }
+        moves.clear();
+        return result;
+    }
+}
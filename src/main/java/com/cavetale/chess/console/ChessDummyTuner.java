@@ -0,0 +1,192 @@
+package com.cavetale.chess.console;
+
+import com.cavetale.chess.ai.DummyAI;
+import com.cavetale.chess.ai.DummyWeights;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessPgnReader;
+import com.cavetale.chess.board.ChessTurn;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Fit the DummyAI weights to a PGN file of finished games, in the
+ * style of Texel tuning.  Every move played becomes a sample: its
+ * features and the final result for the side which played it.  The
+ * score of the move is mapped to an expected result with a sigmoid,
+ * and each weight is nudged up or down as long as the mean squared
+ * error over all samples drops.  Samples are extracted and the error
+ * is computed in parallel.
+ */
+public final class ChessDummyTuner {
+    private File input;
+    private File output;
+    private File startFile;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int skipPlies = 8;
+    private int maxRounds = 100;
+    private ForkJoinPool pool;
+    private int[][] features;
+    private double[] results;
+    private double scale;
+
+    /**
+     * The features of one move, and the result for the side which
+     * played it: 1 for a win, 0.5 for a draw, 0 for a loss.
+     */
+    private record Sample(int[] features, double result) { }
+
+    public static void main(String[] args) throws Exception {
+        final ChessDummyTuner tuner = new ChessDummyTuner();
+        for (int i = 0; i < args.length; i += 1) {
+            final String arg = args[i];
+            switch (arg) {
+            case "-i": case "--input":
+                tuner.input = new File(args[++i]);
+                break;
+            case "-o": case "--output":
+                tuner.output = new File(args[++i]);
+                break;
+            case "-w": case "--weights":
+                tuner.startFile = new File(args[++i]);
+                break;
+            case "-t": case "--threads":
+                tuner.threads = Integer.parseInt(args[++i]);
+                break;
+            case "-s": case "--skip":
+                tuner.skipPlies = Integer.parseInt(args[++i]);
+                break;
+            case "-r": case "--rounds":
+                tuner.maxRounds = Integer.parseInt(args[++i]);
+                break;
+            default:
+                System.err.println("Illegal argument: " + arg);
+                System.exit(1);
+            }
+        }
+        if (tuner.input == null || tuner.output == null) {
+            System.err.println("Usage: ChessDummyTuner -i games.pgn -o weights.properties [-w start.properties]"
+                               + " [-t threads] [-s skipplies] [-r rounds]");
+            System.exit(1);
+        }
+        tuner.run();
+    }
+
+    private void run() throws Exception {
+        pool = new ForkJoinPool(threads);
+        try {
+            final long start = System.currentTimeMillis();
+            loadSamples();
+            System.err.println("Loaded " + results.length + " samples in " + (System.currentTimeMillis() - start) + "ms");
+            if (results.length == 0) {
+                System.err.println("No samples with a result in " + input);
+                System.exit(1);
+            }
+            int[] weights = startFile != null
+                ? DummyWeights.load(startFile).toArray()
+                : DummyWeights.DEFAULT.toArray();
+            scale = fitScale(weights);
+            double best = error(weights);
+            System.err.println("Scale " + scale + ", error " + best + ", " + new DummyWeights(weights));
+            for (int round = 1; round <= maxRounds; round += 1) {
+                boolean improved = false;
+                for (int i = 0; i < weights.length; i += 1) {
+                    for (int step : new int[] {1, -1}) {
+                        weights[i] += step;
+                        final double error = error(weights);
+                        if (error < best) {
+                            best = error;
+                            improved = true;
+                            break;
+                        }
+                        weights[i] -= step;
+                    }
+                }
+                System.err.println("Round " + round + ", error " + best + ", " + new DummyWeights(weights));
+                if (!improved) break;
+            }
+            new DummyWeights(weights).save(output, "Tuned on " + results.length + " samples, error " + best);
+            System.err.println("Wrote " + output + " in " + (System.currentTimeMillis() - start) + "ms");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void loadSamples() throws Exception {
+        final List<String> texts = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8)) {
+            ChessBookBuilder.split(reader, texts::add);
+        }
+        final List<Sample> samples = pool.submit(() -> texts.parallelStream()
+                                                 .flatMap(text -> getSamples(text).stream())
+                                                 .toList()).get();
+        features = new int[samples.size()][];
+        results = new double[samples.size()];
+        for (int i = 0; i < samples.size(); i += 1) {
+            features[i] = samples.get(i).features();
+            results[i] = samples.get(i).result();
+        }
+    }
+
+    private List<Sample> getSamples(String text) {
+        final List<Sample> result = new ArrayList<>();
+        final ChessColor winner = ChessBookBuilder.getWinner(text);
+        final boolean draw = winner == null && text.contains("[Result \"1/2-1/2\"]");
+        if (winner == null && !draw) return result;
+        final ChessGame game;
+        try {
+            game = new ChessPgnReader(new StringReader(text)).readGame();
+        } catch (IllegalArgumentException | IOException e) {
+            return result;
+        }
+        if (game == null) return result;
+        final List<ChessTurn> turns = game.getTurns();
+        for (int ply = skipPlies; ply < turns.size() - 1; ply += 1) {
+            final ChessTurn turn = turns.get(ply);
+            final ChessMove move = turn.getNextMove();
+            final ChessColor color = turn.getBoard().getActiveColor();
+            final double outcome = draw ? 0.5 : (winner == color ? 1.0 : 0.0);
+            result.add(new Sample(DummyAI.getFeatures(turn, move, turns.get(ply + 1).getBoard()), outcome));
+        }
+        return result;
+    }
+
+    /**
+     * Find the sigmoid scale which fits the starting weights best,
+     * so the tuning only changes the weights relative to each other.
+     */
+    private double fitScale(int[] weights) throws Exception {
+        double bestScale = 1.0;
+        double bestError = Double.MAX_VALUE;
+        for (double it = 0.0001; it < 1.0; it *= 1.1) {
+            scale = it;
+            final double error = error(weights);
+            if (error < bestError) {
+                bestError = error;
+                bestScale = it;
+            }
+        }
+        return bestScale;
+    }
+
+    private double error(int[] weightArray) throws Exception {
+        final DummyWeights weights = new DummyWeights(weightArray);
+        final double sum = pool.submit(() -> IntStream.range(0, results.length).parallel()
+                                       .mapToDouble(i -> {
+                                               final double expected = 1.0 / (1.0 + Math.exp(-scale * weights.score(features[i])));
+                                               final double diff = results[i] - expected;
+                                               return diff * diff;
+                                           })
+                                       .sum()).get();
+        return sum / results.length;
+    }
+}
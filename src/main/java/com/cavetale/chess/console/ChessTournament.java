@@ -0,0 +1,240 @@
+package com.cavetale.chess.console;
+
+import com.cavetale.chess.ai.ChessEngineType;
+import com.cavetale.chess.ai.ChessSearch;
+import com.cavetale.chess.ai.DummyAI;
+import com.cavetale.chess.ai.DummyWeights;
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessTurnState;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Play engines against each other without a server.  Every start
+ * position is played twice with colors swapped, and games run in
+ * parallel, one per thread.  At the end the result of engine A
+ * against engine B is printed with the Elo difference and its 95%
+ * confidence interval.
+ *
+ * Engines are given as a ChessEngineType, optionally followed by the
+ * milliseconds per move, such as ALPHA_BETA:500, or a weights file
+ * for the dummy, such as DUMMY:tuned.properties.  Stockfish needs the
+ * server and is not supported.
+ */
+public final class ChessTournament {
+    /** Balanced positions after a few moves of common openings. */
+    private static final List<String> START_FENS = List.of(ChessBoard.FEN_START,
+                                                           "rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2",
+                                                           "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+                                                           "rnbqkbnr/pppp1ppp/4p3/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+                                                           "rnbqkbnr/pp1ppppp/2p5/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+                                                           "rnbqkbnr/ppp1pppp/8/3p4/2PP4/8/PP2PPPP/RNBQKBNR b KQkq - 0 2",
+                                                           "rnbqkb1r/pppppppp/5n2/8/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - 1 2",
+                                                           "rnbqkbnr/pppppppp/8/8/2P5/8/PP1PPPPP/RNBQKBNR b KQkq - 0 1",
+                                                           "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+                                                           "r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+                                                           "rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w KQkq - 1 5",
+                                                           "rnbqkbnr/ppp2ppp/4p3/3p4/3PP3/8/PPP2PPP/RNBQKBNR w KQkq - 0 3");
+    private Engine engineA;
+    private Engine engineB;
+    private int games = 100;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxPlies = 400;
+    private List<String> fens = START_FENS;
+    private File output;
+    private final AtomicInteger wins = new AtomicInteger();
+    private final AtomicInteger draws = new AtomicInteger();
+    private final AtomicInteger losses = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private BufferedWriter writer;
+
+    /**
+     * One side of the match.  Searches are created per game so the
+     * engines of different games never share state.
+     */
+    private record Engine(ChessEngineType type, long millis, String weightsName, DummyWeights weights) {
+        static Engine parse(String arg) throws IOException {
+            final String[] parts = arg.split(":", 2);
+            final ChessEngineType type = ChessEngineType.valueOf(parts[0].toUpperCase());
+            switch (type) {
+            case ALPHA_BETA:
+                return new Engine(type, parts.length > 1 ? Long.parseLong(parts[1]) : 1000L, null, null);
+            case DUMMY:
+                return parts.length > 1
+                    ? new Engine(type, 0L, new File(parts[1]).getName(), DummyWeights.load(new File(parts[1])))
+                    : new Engine(type, 0L, null, DummyWeights.DEFAULT);
+            default:
+                throw new IllegalArgumentException("Engine not supported: " + arg);
+            }
+        }
+
+        String getName() {
+            if (type == ChessEngineType.ALPHA_BETA) return type.getDisplayName() + "-" + millis + "ms";
+            if (weightsName != null) return type.getDisplayName() + "-" + weightsName;
+            return type.getDisplayName();
+        }
+
+        ChessMove getDummyMove(ChessGame game) {
+            final DummyAI ai = new DummyAI();
+            ai.setWeights(weights);
+            return ai.getBestMove(game);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final ChessTournament tournament = new ChessTournament();
+        for (int i = 0; i < args.length; i += 1) {
+            final String arg = args[i];
+            switch (arg) {
+            case "-a":
+                tournament.engineA = Engine.parse(args[++i]);
+                break;
+            case "-b":
+                tournament.engineB = Engine.parse(args[++i]);
+                break;
+            case "-n": case "--games":
+                tournament.games = Integer.parseInt(args[++i]);
+                break;
+            case "-t": case "--threads":
+                tournament.threads = Integer.parseInt(args[++i]);
+                break;
+            case "-p": case "--plies":
+                tournament.maxPlies = Integer.parseInt(args[++i]);
+                break;
+            case "-f": case "--fens":
+                tournament.fens = Files.readAllLines(new File(args[++i]).toPath(), StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+                break;
+            case "-o": case "--output":
+                tournament.output = new File(args[++i]);
+                break;
+            default:
+                System.err.println("Illegal argument: " + arg);
+                System.exit(1);
+            }
+        }
+        if (tournament.engineA == null || tournament.engineB == null) {
+            System.err.println("Usage: ChessTournament -a ENGINE[:millis] -b ENGINE[:millis] [-n games]"
+                               + " [-t threads] [-p plies] [-f fens.txt] [-o games.pgn]");
+            System.exit(1);
+        }
+        tournament.run();
+    }
+
+    private void run() throws Exception {
+        if (output != null) writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8);
+        final long start = System.nanoTime();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < games; i += 1) {
+            final int round = i + 1;
+            // Each position twice in a row, with colors swapped
+            final String fen = fens.get((i / 2) % fens.size());
+            final boolean aIsWhite = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                        playGame(round, fen, aIsWhite);
+                        return null;
+                    }));
+        }
+        executor.shutdown();
+        for (Future<?> future : futures) future.get();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        if (writer != null) writer.close();
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        printResult(seconds);
+    }
+
+    private void playGame(int round, String fen, boolean aIsWhite) throws IOException {
+        final Engine white = aIsWhite ? engineA : engineB;
+        final Engine black = aIsWhite ? engineB : engineA;
+        final ChessSearch whiteSearch = white.type() == ChessEngineType.ALPHA_BETA ? new ChessSearch(1, 16) : null;
+        final ChessSearch blackSearch = black.type() == ChessEngineType.ALPHA_BETA ? new ChessSearch(1, 16) : null;
+        final ChessGame game = new ChessGame();
+        game.loadFenString(fen);
+        game.setEventName("Self-play " + engineA.getName() + " vs " + engineB.getName());
+        game.setSiteName("console");
+        game.setRoundNumber(round);
+        game.setWhiteName(white.getName());
+        game.setBlackName(black.getName());
+        try {
+            while (!game.getCurrentTurn().getState().isGameOver()) {
+                if (game.getMoveCount() >= maxPlies) {
+                    // Adjudicate endless games as drawn
+                    game.getCurrentTurn().setAggreeToDraw();
+                    break;
+                }
+                final boolean whiteToMove = game.getCurrentBoard().getActiveColor() == ChessColor.WHITE;
+                final Engine engine = whiteToMove ? white : black;
+                final ChessMove move = engine.type() == ChessEngineType.ALPHA_BETA
+                    ? (whiteToMove ? whiteSearch : blackSearch).search(game.getCurrentBoard(), game.getRepetitionHashes(), engine.millis(), 64)
+                    : engine.getDummyMove(game);
+                if (move == null || !game.move(move)) {
+                    throw new IllegalStateException(engine.getName() + " made illegal move " + move
+                                                    + " in " + game.getCurrentBoard().toFenString());
+                }
+            }
+        } finally {
+            if (whiteSearch != null) whiteSearch.shutdown();
+            if (blackSearch != null) blackSearch.shutdown();
+        }
+        final ChessTurnState state = game.getCurrentTurn().getState();
+        if (state.isDraw()) {
+            draws.incrementAndGet();
+        } else if ((game.getCurrentTurn().getWinner() == ChessColor.WHITE) == aIsWhite) {
+            wins.incrementAndGet();
+        } else {
+            losses.incrementAndGet();
+        }
+        if (writer != null) {
+            synchronized (writer) {
+                writer.write(game.toPgnString());
+                writer.write("\n\n");
+            }
+        }
+        final int count = finished.incrementAndGet();
+        if (count % 10 == 0 || count == games) {
+            System.err.println(count + "/" + games + " +" + wins + " =" + draws + " -" + losses);
+        }
+    }
+
+    private void printResult(double seconds) {
+        final int w = wins.get();
+        final int d = draws.get();
+        final int l = losses.get();
+        final int n = w + d + l;
+        final double score = (w + 0.5 * d) / n;
+        // Standard error of the mean score per game
+        final double variance = (w * Math.pow(1.0 - score, 2)
+                                 + d * Math.pow(0.5 - score, 2)
+                                 + l * Math.pow(0.0 - score, 2)) / n;
+        final double error = Math.sqrt(variance / n);
+        final double elo = toElo(score);
+        final double low = toElo(score - 1.96 * error);
+        final double high = toElo(score + 1.96 * error);
+        System.out.println(engineA.getName() + " vs " + engineB.getName() + ": "
+                           + "+" + w + " =" + d + " -" + l
+                           + String.format(" score %.1f%%", 100.0 * score));
+        System.out.println(String.format("Elo %+.0f (95%%: %+.0f .. %+.0f)", elo, low, high));
+        System.out.println(String.format("%d games in %.1fs, %.2f games/s", n, seconds, n / seconds));
+    }
+
+    private static double toElo(double score) {
+        final double clamped = Math.max(0.001, Math.min(0.999, score));
+        return -400.0 * Math.log10(1.0 / clamped - 1.0);
+    }
+}
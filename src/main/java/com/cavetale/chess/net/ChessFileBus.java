@@ -0,0 +1,128 @@
+package com.cavetale.chess.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A bus backed by one file, which servers on the same machine share.
+ * Messages are appended under a file lock, each prefixed with its
+ * length, and every server polls the file for what was appended
+ * since.  The file only grows; delete it while all servers are down.
+ * This stands in for a real message bus in tests and small setups.
+ */
+public final class ChessFileBus implements ChessReplicationBus {
+    private static final int MAX_MESSAGE = 1 << 16;
+    private final File file;
+    private final List<Consumer<byte[]>> listeners = new CopyOnWriteArrayList<>();
+    private final FileChannel channel;
+    private long offset;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Open the file.  Only messages appended from now on are
+     * received.
+     */
+    public ChessFileBus(final File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.offset = channel.size();
+    }
+
+    /**
+     * Poll the file in a background thread.
+     * @param errorHandler receives errors while polling
+     */
+    public void start(long pollMillis, Consumer<Exception> errorHandler) {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "Chess-FileBus");
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.scheduleWithFixedDelay(() -> {
+                try {
+                    poll();
+                } catch (IOException | RuntimeException e) {
+                    // Keep the scheduled task alive
+                    errorHandler.accept(e);
+                }
+            }, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        if (message.length > MAX_MESSAGE) {
+            throw new IllegalArgumentException("Message too large: " + message.length);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(4 + message.length);
+        buffer.putInt(message.length).put(message).flip();
+        try (FileLock lock = channel.lock()) {
+            long position = channel.size();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Write " + file, ioe);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<byte[]> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Deliver the complete messages appended since the last poll.
+     * @return the number of messages delivered
+     */
+    public synchronized int poll() throws IOException {
+        final long size = channel.size();
+        if (size < offset) offset = 0L; // Replaced
+        int count = 0;
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        while (offset + 4 <= size) {
+            header.clear();
+            channel.read(header, offset);
+            if (header.hasRemaining()) break;
+            final int length = header.flip().getInt();
+            if (length < 0 || length > MAX_MESSAGE) {
+                final long corrupt = offset;
+                offset = size; // Skip ahead
+                throw new IOException("Corrupt message at " + corrupt + " in " + file);
+            }
+            if (offset + 4 + length > size) break; // Not written yet
+            final ByteBuffer body = ByteBuffer.allocate(length);
+            while (body.hasRemaining()) {
+                if (channel.read(body, offset + 4 + body.position()) < 0) break;
+            }
+            offset += 4 + length;
+            for (Consumer<byte[]> listener : listeners) listener.accept(body.array());
+            count += 1;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        listeners.clear();
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.cavetale.chess.net;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessPiece;
+import com.cavetale.chess.board.ChessTurn;
+import java.util.List;
+
+/**
+ * Render a game as a static HTML page: the board at one ply, the
+ * move list with a link to every position, and a link to the PGN.
+ * The page has no scripts and loads nothing from elsewhere.
+ */
+public final class ChessGameHtml {
+    private static final String STYLE = "body{font-family:sans-serif;background:#302e2b;color:#eee;margin:2em}"
+        + "a{color:#8cf}"
+        + "table.board{border-collapse:collapse;border:4px solid #222}"
+        + "table.board td{width:56px;height:56px;text-align:center;font-size:44px;line-height:56px;color:#000}"
+        + "td.light{background:#f0d9b5}td.dark{background:#b58863}"
+        + "td.white{color:#fff;text-shadow:0 0 2px #000,0 0 2px #000}"
+        + "td.coord{background:none;font-size:14px;width:20px;color:#aaa}"
+        + ".moves a{text-decoration:none;padding:0 3px}.moves a.current{background:#8cf;color:#000}"
+        + ".nav a{margin-right:1em}";
+
+    private ChessGameHtml() { }
+
+    /**
+     * Render the game.
+     * @param game the game
+     * @param ply the number of half moves to show, clamped to the
+     *   game
+     */
+    public static String render(ChessGame game, int ply) {
+        final List<ChessTurn> turns = game.getTurns();
+        final int last = turns.size() - 1;
+        final int shown = Math.max(0, Math.min(last, ply));
+        final ChessTurn turn = turns.get(shown);
+        final StringBuilder sb = new StringBuilder();
+        final String title = game.getWhiteName() + " vs " + game.getBlackName();
+        sb.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>")
+            .append(escape(title))
+            .append("</title><style>").append(STYLE).append("</style></head><body>");
+        sb.append("<h1>").append(escape(title)).append("</h1>");
+        sb.append("<p>").append(escape(game.getEventName()))
+            .append(", ").append(escape(game.getSiteName()))
+            .append(", ").append(game.getStartTime())
+            .append(" &mdash; ").append(getResult(game)).append("</p>");
+        renderBoard(sb, turn.getBoard());
+        sb.append("<p class=\"nav\">")
+            .append(link(0, "&laquo; Start"))
+            .append(link(Math.max(0, shown - 1), "&lsaquo; Back"))
+            .append(link(Math.min(last, shown + 1), "Next &rsaquo;"))
+            .append(link(last, "End &raquo;"))
+            .append("<a href=\"?pgn\">PGN</a></p>");
+        sb.append("<p class=\"moves\">");
+        for (int i = 0; i < last; i += 1) {
+            final ChessTurn it = turns.get(i);
+            final ChessMove move = it.getNextMove();
+            if (move == null) break;
+            final ChessBoard board = it.getBoard();
+            if (board.getActiveColor() == ChessColor.WHITE) {
+                sb.append(board.getFullMoveClock()).append(". ");
+            } else if (i == 0) {
+                sb.append(board.getFullMoveClock()).append("... ");
+            }
+            sb.append("<a href=\"?ply=").append(i + 1).append("\"")
+                .append(i + 1 == shown ? " class=\"current\"" : "")
+                .append(">").append(escape(it.getMoveText(move))).append("</a> ");
+        }
+        sb.append("</p><p><code>").append(escape(turn.getBoard().toFenString())).append("</code></p>");
+        sb.append("</body></html>");
+        return sb.toString();
+    }
+
+    private static void renderBoard(StringBuilder sb, ChessBoard board) {
+        sb.append("<table class=\"board\">");
+        for (int y = 7; y >= 0; y -= 1) {
+            sb.append("<tr><td class=\"coord\">").append(y + 1).append("</td>");
+            for (int x = 0; x < 8; x += 1) {
+                final ChessPiece piece = board.getPieceAt(x, y);
+                sb.append("<td class=\"").append((x + y) % 2 == 0 ? "dark" : "light");
+                if (piece != null && piece.color == ChessColor.WHITE) sb.append(" white");
+                sb.append("\">");
+                // Black symbols are filled, white ones are colored by the style
+                if (piece != null) sb.append(ChessPiece.of(ChessColor.BLACK, piece.type).unicodeSymbol);
+                sb.append("</td>");
+            }
+            sb.append("</tr>");
+        }
+        sb.append("<tr><td class=\"coord\"></td>");
+        for (char file = 'a'; file <= 'h'; file += 1) {
+            sb.append("<td class=\"coord\">").append(file).append("</td>");
+        }
+        sb.append("</tr></table>");
+    }
+
+    private static String getResult(ChessGame game) {
+        final ChessTurn turn = game.getCurrentTurn();
+        if (!turn.getState().isGameOver()) return "*";
+        final ChessColor winner = turn.getWinner();
+        if (winner == null) return "&frac12;-&frac12;";
+        return winner == ChessColor.WHITE ? "1-0" : "0-1";
+    }
+
+    private static String link(int ply, String label) {
+        return "<a href=\"?ply=" + ply + "\">" + label + "</a>";
+    }
+
+    public static String escape(String text) {
+        if (text == null) return "";
+        final StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i += 1) {
+            final char c = text.charAt(i);
+            switch (c) {
+            case '<': sb.append("&lt;"); break;
+            case '>': sb.append("&gt;"); break;
+            case '&': sb.append("&amp;"); break;
+            case '"': sb.append("&quot;"); break;
+            default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
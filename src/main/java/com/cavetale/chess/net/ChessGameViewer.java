@@ -0,0 +1,116 @@
+package com.cavetale.chess.net;
+
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.sql.SQLChessGame;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import lombok.Getter;
+import static com.cavetale.chess.ChessPlugin.plugin;
+
+/**
+ * A small embedded web server which shows stored games from the
+ * games table, so finished games get a link right away without
+ * importing them anywhere.
+ *
+ * /game/ID shows the final position, /game/ID?ply=N any earlier one,
+ * and /game/ID?pgn the PGN.
+ */
+public final class ChessGameViewer {
+    private static final String PREFIX = "/game/";
+    private HttpServer server;
+    private ExecutorService executor;
+    /** The base URL players use to reach this server. */
+    @Getter private String publicUrl;
+
+    public void enable(String host, int port, String thePublicUrl) throws IOException {
+        publicUrl = thePublicUrl.endsWith("/")
+            ? thePublicUrl.substring(0, thePublicUrl.length() - 1)
+            : thePublicUrl;
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        executor = Executors.newFixedThreadPool(2, runnable -> {
+                final Thread thread = new Thread(runnable, "Chess-GameViewer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        server.setExecutor(executor);
+        server.createContext(PREFIX, this::handle);
+        server.start();
+        plugin().getLogger().info("[ChessGameViewer] Listening on " + host + ":" + port);
+    }
+
+    public void disable() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return server != null;
+    }
+
+    public String getGameUrl(int id) {
+        return publicUrl + PREFIX + id;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "Method not allowed");
+                return;
+            }
+            final int id;
+            try {
+                id = Integer.parseInt(exchange.getRequestURI().getPath().substring(PREFIX.length()));
+            } catch (NumberFormatException nfe) {
+                send(exchange, 404, "text/plain", "Not found");
+                return;
+            }
+            final SQLChessGame row = plugin().getDatabase().find(SQLChessGame.class)
+                .eq("id", id)
+                .findUnique();
+            if (row == null) {
+                send(exchange, 404, "text/plain", "Game not found");
+                return;
+            }
+            final String query = exchange.getRequestURI().getQuery();
+            if ("pgn".equals(query)) {
+                send(exchange, 200, "application/x-chess-pgn", row.getPgnString());
+                return;
+            }
+            int ply = Integer.MAX_VALUE;
+            if (query != null && query.startsWith("ply=")) {
+                try {
+                    ply = Integer.parseInt(query.substring(4));
+                } catch (NumberFormatException nfe) { }
+            }
+            final ChessGame game = row.parseGame();
+            send(exchange, 200, "text/html", ChessGameHtml.render(game, ply));
+        } catch (RuntimeException re) {
+            plugin().getLogger().log(Level.SEVERE, "[ChessGameViewer] " + exchange.getRequestURI(), re);
+            send(exchange, 500, "text/plain", "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cavetale.chess.net;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A bus within one process, which delivers every message right away
+ * in the publishing thread.  Several replications sharing one
+ * instance behave like servers on a network, which is useful for
+ * tests.
+ */
+public final class ChessMemoryBus implements ChessReplicationBus {
+    private final List<Consumer<byte[]>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public synchronized void publish(byte[] message) {
+        for (Consumer<byte[]> listener : listeners) listener.accept(message.clone());
+    }
+
+    @Override
+    public void subscribe(Consumer<byte[]> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+}
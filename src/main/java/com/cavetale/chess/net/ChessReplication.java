@@ -0,0 +1,222 @@
+package com.cavetale.chess.net;
+
+import com.cavetale.chess.spectate.ChessSnapshot;
+import com.cavetale.chess.spectate.ChessSnapshotPublisher;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import lombok.Getter;
+
+/**
+ * Mirror the boards of all servers in the network.  The snapshots of
+ * local boards are sent to the bus, mostly as small MOVE messages;
+ * the boards of other servers are received from it and published
+ * into the local ChessSnapshotPublisher, under the id SERVER:BOARD.
+ * Spectators, leaderboards and history can then subscribe to remote
+ * boards like to local ones.
+ *
+ * A full SNAPSHOT is sent instead of a MOVE whenever the receivers
+ * might not be able to follow: the first time, after coalesced
+ * snapshots were skipped, every SNAPSHOT_INTERVAL moves, and for
+ * every board once per RESYNC_SECONDS, so servers which started
+ * later catch up.  A receiver which misses a message ignores further
+ * MOVEs of that board until the next SNAPSHOT.
+ *
+ * A REMOVE is sent when a local board is cleared, and for all of
+ * them on disable.  Mirrors which hear nothing for EXPIRE_SECONDS,
+ * because their server went away without a REMOVE, are dropped.
+ */
+public final class ChessReplication {
+    public static final int SNAPSHOT_INTERVAL = 32;
+    public static final long RESYNC_SECONDS = 60L;
+    public static final long EXPIRE_SECONDS = 2L * RESYNC_SECONDS;
+    @Getter private final String serverName;
+    private final ChessReplicationBus bus;
+    private final ChessSnapshotPublisher publisher;
+    private final Logger logger;
+    private volatile ScheduledExecutorService executor;
+    private ChessSnapshotPublisher.Subscription subscription;
+    private final Consumer<String> clearListener = this::onClear;
+    /** The last snapshot sent per local board, only used by the executor and after it in disable. */
+    private final Map<String, ChessSnapshot> sent = new HashMap<>();
+    /** The latest snapshot per remote board, by local id. */
+    private final Map<String, Mirror> mirrors = new ConcurrentHashMap<>();
+
+    /**
+     * A remote board, with the local time of its last message.
+     */
+    private record Mirror(ChessSnapshot snapshot, long receivedMillis) { }
+
+    public ChessReplication(final String serverName, final ChessReplicationBus bus,
+                            final ChessSnapshotPublisher publisher, final Logger logger) {
+        if (serverName.isEmpty() || serverName.contains(":")) {
+            throw new IllegalArgumentException("Invalid server name: " + serverName);
+        }
+        this.serverName = serverName;
+        this.bus = bus;
+        this.publisher = publisher;
+        this.logger = logger;
+    }
+
+    public void enable() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "Chess-Replication");
+                thread.setDaemon(true);
+                return thread;
+            });
+        bus.subscribe(this::receive);
+        // Encoding and sending happens off the main thread
+        subscription = publisher.subscribeAll(executor, this::send);
+        publisher.addClearListener(clearListener);
+        executor.scheduleWithFixedDelay(this::resync, RESYNC_SECONDS, RESYNC_SECONDS, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(() -> expire(System.currentTimeMillis()),
+                                        RESYNC_SECONDS / 2L, RESYNC_SECONDS / 2L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop sending and receiving, and tell the other servers that
+     * the local boards are gone.
+     */
+    public void disable() {
+        publisher.removeClearListener(clearListener);
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5L, TimeUnit.SECONDS)) {
+                    logger.warning("[ChessReplication] Timed out waiting for replication thread");
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        // The executor is done with sent
+        for (String boardId : List.copyOf(sent.keySet())) remove(boardId);
+        bus.close();
+        for (String boardId : mirrors.keySet()) publisher.clear(boardId);
+        mirrors.clear();
+    }
+
+    public boolean isRemote(String boardId) {
+        return mirrors.containsKey(boardId);
+    }
+
+    private void onClear(String boardId) {
+        final ScheduledExecutorService theExecutor = executor;
+        if (theExecutor == null || mirrors.containsKey(boardId)) return;
+        try {
+            theExecutor.execute(() -> remove(boardId));
+        } catch (RejectedExecutionException ree) {
+            // Disabling, which removes every board anyway
+            return;
+        }
+    }
+
+    /**
+     * Tell the other servers that a local board is gone, if they
+     * know about it.
+     */
+    private void remove(String boardId) {
+        final ChessSnapshot previous = sent.remove(boardId);
+        if (previous == null) return;
+        try {
+            bus.publish(ChessReplicationCodec.encodeRemove(serverName, boardId, previous.sequence(), System.currentTimeMillis()));
+        } catch (RuntimeException re) {
+            logger.log(Level.WARNING, "[ChessReplication] remove " + boardId, re);
+        }
+    }
+
+    /**
+     * Drop the mirrors which did not hear from their server for
+     * EXPIRE_SECONDS.
+     */
+    void expire(long now) {
+        for (Map.Entry<String, Mirror> entry : mirrors.entrySet()) {
+            if (now - entry.getValue().receivedMillis() < EXPIRE_SECONDS * 1000L) continue;
+            // A message may have come in meanwhile
+            if (!mirrors.remove(entry.getKey(), entry.getValue())) continue;
+            publisher.clear(entry.getKey());
+            logger.info("[ChessReplication] Expired " + entry.getKey());
+        }
+    }
+
+    private void send(ChessSnapshot snapshot) {
+        if (mirrors.containsKey(snapshot.boardId())) return;
+        final ChessSnapshot previous = sent.put(snapshot.boardId(), snapshot);
+        final boolean asMove = previous != null
+            && snapshot.sequence() == previous.sequence() + 1
+            && snapshot.sequence() % SNAPSHOT_INTERVAL != 0
+            && snapshot.lastMove() != null
+            && !snapshot.fen().equals(previous.fen())
+            && snapshot.whiteName().equals(previous.whiteName())
+            && snapshot.blackName().equals(previous.blackName());
+        try {
+            bus.publish(asMove
+                        ? ChessReplicationCodec.encodeMove(serverName, snapshot)
+                        : ChessReplicationCodec.encodeSnapshot(serverName, snapshot));
+        } catch (RuntimeException re) {
+            // Make sure the next one is a full snapshot
+            sent.remove(snapshot.boardId());
+            logger.log(Level.WARNING, "[ChessReplication] send " + snapshot.boardId(), re);
+        }
+    }
+
+    /**
+     * Send the full snapshot of every local board.
+     */
+    private void resync() {
+        for (ChessSnapshot snapshot : publisher.getAllLatest()) {
+            if (mirrors.containsKey(snapshot.boardId())) continue;
+            sent.remove(snapshot.boardId());
+            send(snapshot);
+        }
+    }
+
+    private void receive(byte[] bytes) {
+        final ChessReplicationCodec.Message message;
+        try {
+            message = ChessReplicationCodec.decode(bytes);
+        } catch (IllegalArgumentException iae) {
+            logger.log(Level.WARNING, "[ChessReplication] receive", iae);
+            return;
+        }
+        if (message.serverName().equals(serverName)) return;
+        final ChessSnapshot received = message.snapshot();
+        final String boardId = message.serverName() + ":" + received.boardId();
+        if (message.type() == ChessReplicationCodec.REMOVE) {
+            if (mirrors.remove(boardId) != null) publisher.clear(boardId);
+            return;
+        }
+        final Mirror mirror = mirrors.get(boardId);
+        final ChessSnapshot previous = mirror != null ? mirror.snapshot() : null;
+        final ChessSnapshot snapshot;
+        if (message.type() == ChessReplicationCodec.SNAPSHOT) {
+            // Ignore old snapshots, but follow a restarted server
+            if (previous != null && received.sequence() <= previous.sequence() && received.time() <= previous.time()) {
+                // The resync of an idle board still keeps it alive
+                mirrors.replace(boardId, mirror, new Mirror(previous, System.currentTimeMillis()));
+                return;
+            }
+            snapshot = new ChessSnapshot(boardId, received.sequence(), received.fen(), received.lastMove(), received.state(),
+                                         received.whiteName(), received.blackName(), received.whiteMillis(), received.blackMillis(),
+                                         received.clockColor(), received.time());
+        } else {
+            snapshot = ChessReplicationCodec.applyMove(previous, received);
+            if (snapshot == null) return; // Wait for the next snapshot
+        }
+        mirrors.put(boardId, new Mirror(snapshot, System.currentTimeMillis()));
+        publisher.publish(snapshot);
+    }
+}
@@ -0,0 +1,24 @@
+package com.cavetale.chess.net;
+
+import java.util.function.Consumer;
+
+/**
+ * A message bus shared by all servers of the network, which carries
+ * the binary messages of ChessReplication.  Every message goes to
+ * every subscriber, including those of the sending server.
+ */
+public interface ChessReplicationBus {
+    /**
+     * Send a message.  This may be called from any thread and should
+     * not block for long.
+     */
+    void publish(byte[] message);
+
+    /**
+     * Receive all messages.  The listener may be called from any
+     * thread, but never concurrently.
+     */
+    void subscribe(Consumer<byte[]> listener);
+
+    void close();
+}
@@ -0,0 +1,150 @@
+package com.cavetale.chess.net;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessTurnState;
+import com.cavetale.chess.spectate.ChessSnapshot;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The binary messages of ChessReplication.  Every message starts
+ * with the version, the type, the sending server, the board and the
+ * sequence number of the snapshot.
+ *
+ * A MOVE only carries the packed move, the turn state and the
+ * clocks, about 40 bytes with the names.  The receiver applies it to
+ * the previous snapshot, which must have the sequence number right
+ * before.  A SNAPSHOT carries the full position and both names, and
+ * brings a receiver back in sync.  A REMOVE only adds the time, and
+ * tells receivers that the board is gone.
+ */
+public final class ChessReplicationCodec {
+    public static final int VERSION = 1;
+    public static final int MOVE = 1;
+    public static final int SNAPSHOT = 2;
+    public static final int REMOVE = 3;
+
+    /**
+     * A decoded message.  The snapshot of a MOVE lacks the position
+     * and the names, see applyMove.  The snapshot of a REMOVE only
+     * has the board, the sequence and the time.
+     */
+    public record Message(int type, String serverName, ChessSnapshot snapshot) { }
+
+    private ChessReplicationCodec() { }
+
+    public static byte[] encodeMove(String serverName, ChessSnapshot snapshot) {
+        return encode(MOVE, serverName, snapshot);
+    }
+
+    public static byte[] encodeSnapshot(String serverName, ChessSnapshot snapshot) {
+        return encode(SNAPSHOT, serverName, snapshot);
+    }
+
+    public static byte[] encodeRemove(String serverName, String boardId, long sequence, long time) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(REMOVE);
+            out.writeUTF(serverName);
+            out.writeUTF(boardId);
+            out.writeLong(sequence);
+            out.writeLong(time);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe); // Impossible
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encode(int type, String serverName, ChessSnapshot snapshot) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(type == MOVE ? 64 : 160);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(type);
+            out.writeUTF(serverName);
+            out.writeUTF(snapshot.boardId());
+            out.writeLong(snapshot.sequence());
+            if (type == SNAPSHOT) out.writeUTF(snapshot.fen());
+            out.writeShort(snapshot.lastMove() != null ? snapshot.lastMove().pack() : -1);
+            out.writeByte(snapshot.state().ordinal());
+            if (type == SNAPSHOT) {
+                out.writeUTF(snapshot.whiteName());
+                out.writeUTF(snapshot.blackName());
+            }
+            out.writeInt((int) Math.min(Integer.MAX_VALUE, snapshot.whiteMillis()));
+            out.writeInt((int) Math.min(Integer.MAX_VALUE, snapshot.blackMillis()));
+            out.writeByte(snapshot.clockColor() != null ? snapshot.clockColor().ordinal() : -1);
+            out.writeLong(snapshot.time());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe); // Impossible
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a message.
+     * @throws IllegalArgumentException if the message is invalid or
+     * of another version
+     */
+    public static Message decode(byte[] message) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            final int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown version: " + version);
+            }
+            final int type = in.readUnsignedByte();
+            if (type != MOVE && type != SNAPSHOT && type != REMOVE) {
+                throw new IllegalArgumentException("Unknown type: " + type);
+            }
+            final String serverName = in.readUTF();
+            final String boardId = in.readUTF();
+            final long sequence = in.readLong();
+            if (type == REMOVE) {
+                return new Message(type, serverName, new ChessSnapshot(boardId, sequence, null, null, null,
+                                                                       null, null, 0L, 0L, null, in.readLong()));
+            }
+            final String fen = type == SNAPSHOT ? in.readUTF() : null;
+            final int packedMove = in.readShort();
+            final ChessMove lastMove = packedMove >= 0 ? ChessMove.unpack(packedMove) : null;
+            final ChessTurnState state = ChessTurnState.values()[in.readUnsignedByte()];
+            final String whiteName = type == SNAPSHOT ? in.readUTF() : null;
+            final String blackName = type == SNAPSHOT ? in.readUTF() : null;
+            final long whiteMillis = in.readInt();
+            final long blackMillis = in.readInt();
+            final int clock = in.readByte();
+            final ChessColor clockColor = clock >= 0 ? ChessColor.values()[clock] : null;
+            final long time = in.readLong();
+            return new Message(type, serverName, new ChessSnapshot(boardId, sequence, fen, lastMove, state,
+                                                                   whiteName, blackName, whiteMillis, blackMillis,
+                                                                   clockColor, time));
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid message", e);
+        }
+    }
+
+    /**
+     * Play a decoded MOVE on the snapshot before it.
+     * @return the new snapshot, or null if the previous snapshot is
+     * not the one right before, or the move cannot be played
+     */
+    public static ChessSnapshot applyMove(ChessSnapshot previous, ChessSnapshot move) {
+        if (previous == null || move.lastMove() == null) return null;
+        if (move.sequence() != previous.sequence() + 1) return null;
+        final ChessBoard board = new ChessBoard();
+        try {
+            board.loadFenString(previous.fen());
+            board.move(move.lastMove());
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+        return new ChessSnapshot(previous.boardId(), move.sequence(), board.toFenString(), move.lastMove(), move.state(),
+                                 previous.whiteName(), previous.blackName(), move.whiteMillis(), move.blackMillis(),
+                                 move.clockColor(), move.time());
+    }
+}
@@ -2,80 +2,212 @@ package com.cavetale.chess.net;
 
 import com.cavetale.chess.board.ChessGame;
 import com.cavetale.core.util.Json;
-import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
-import lombok.RequiredArgsConstructor;
-import org.bukkit.Bukkit;
-import static com.cavetale.chess.ChessPlugin.plugin;
+import java.util.logging.Logger;
+import lombok.Setter;
 
-@RequiredArgsConstructor
+/**
+ * Import games into Lichess to get a link to them.  All imports
+ * share one HttpClient and send their requests asynchronously, so no
+ * thread is blocked while waiting for the server.  At most
+ * maxInFlight requests run at the same time and the rest wait in
+ * line.  Rate limits and server errors are retried with backoff.
+ *
+ * The endpoint is configurable, so a local stub server can stand in
+ * for Lichess.  Callbacks run on the given executor, which is the
+ * main thread in the plugin.
+ */
 public final class LichessImport {
-    private final ChessGame game;
-    private final Consumer<String> callback;
+    public static final String DEFAULT_ENDPOINT = "https://lichess.org";
+    public static final int MAX_ATTEMPTS = 4;
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final ArrayDeque<Request> waiting = new ArrayDeque<>();
+    private int inFlight = 0;
+    private final String endpoint;
+    private final int maxInFlight;
+    private final Logger logger;
+    private final Executor callbackExecutor;
+    /** The delay before the first retry, doubled with every attempt. */
+    @Setter private long retryMillis = 1000L;
 
-    public HttpResponse request() {
+    /**
+     * @param endpoint the base URL, such as https://lichess.org
+     * @param maxInFlight the maximum number of concurrent requests
+     * @param logger the logger
+     * @param callbackExecutor runs the callbacks, or throws
+     *   RejectedExecutionException when they can no longer run
+     */
+    public LichessImport(final String endpoint, final int maxInFlight, final Logger logger, final Executor callbackExecutor) {
+        this.endpoint = endpoint.endsWith("/")
+            ? endpoint.substring(0, endpoint.length() - 1)
+            : endpoint;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.logger = logger;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Start an import.  The game is read on the calling thread.  The
+     * callback will be called on the callback executor with the URL,
+     * or null if the import failed.  It is not called if the executor
+     * rejects it, so callers must not hold back anything which needs
+     * to be saved until then.
+     */
+    public void submit(ChessGame game, Consumer<String> callback) {
         final String post = "pgn=" + URLEncoder.encode(game.toPgnString().replace("\n", "\r\n"),
                                                        StandardCharsets.UTF_8);
-        final var client = HttpClient.newHttpClient();
-        final var request = HttpRequest.newBuilder()
-            .uri(URI.create("https://lichess.org/api/import"))
+        final HttpRequest httpRequest = HttpRequest.newBuilder()
+            .uri(URI.create(endpoint + "/api/import"))
+            .timeout(Duration.ofSeconds(30))
             .header("Content-Type", "application/x-www-form-urlencoded")
             .POST(HttpRequest.BodyPublishers.ofString(post))
             .build();
-        try {
-            return client.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException ioe) {
-            plugin().getLogger().log(Level.SEVERE, request.toString(), ioe);
-            return null;
-        } catch (InterruptedException ie) {
-            plugin().getLogger().log(Level.SEVERE, request.toString(), ie);
-            return null;
+        final Request request = new Request(httpRequest, callback);
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                waiting.add(request);
+                return;
+            }
+            inFlight += 1;
         }
+        request.send(1);
+    }
+
+    /**
+     * The number of requests which are sent or waiting for a retry.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
     }
 
-    private String sync() {
-        final var response = request();
-        if (response == null) return null;
-        switch (response.statusCode()) {
-        case 200:
-            final String json = response.body().toString();
-            final Map<?, ?> map = Json.deserialize(json, Map.class);
-            final var object = map.get("url");
-            if (object == null) {
-                plugin().getLogger().severe("Unexpected LichessImport 200"
-                                          + " body=" + response.body());
+    /**
+     * The number of requests waiting for a free slot.
+     */
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    private final class Request {
+        private final HttpRequest httpRequest;
+        private final Consumer<String> callback;
+
+        Request(final HttpRequest httpRequest, final Consumer<String> callback) {
+            this.httpRequest = httpRequest;
+            this.callback = callback;
+        }
+
+        private void send(int attempt) {
+            client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, throwable) -> {
+                        // The slot must be freed, whatever happens here
+                        boolean retrying = false;
+                        String result = null;
+                        try {
+                            if (throwable != null) {
+                                logger.log(Level.WARNING, "[LichessImport] " + httpRequest + " attempt " + attempt, throwable);
+                                retrying = retry(attempt, 0L);
+                                return;
+                            }
+                            final int status = response.statusCode();
+                            if (status == 429 || status >= 500) {
+                                logger.warning("[LichessImport] HTTP " + status + " attempt " + attempt);
+                                retrying = retry(attempt, getRetryAfter(response));
+                                return;
+                            }
+                            result = parse(response);
+                        } catch (RuntimeException re) {
+                            logger.log(Level.SEVERE, "[LichessImport] " + httpRequest + " attempt " + attempt, re);
+                            result = null;
+                        } finally {
+                            if (!retrying) complete(result);
+                        }
+                    });
+        }
+
+        /**
+         * Retry after a delay which doubles with every attempt, unless
+         * the server asked for a longer one.
+         * @return true if a retry was scheduled, false if there are no
+         *   attempts left
+         */
+        private boolean retry(int attempt, long retryAfter) {
+            if (attempt >= MAX_ATTEMPTS) return false;
+            final long delay = Math.max(retryAfter, retryMillis << (attempt - 1));
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                .execute(() -> send(attempt + 1));
+            return true;
+        }
+
+        private String parse(HttpResponse<String> response) {
+            switch (response.statusCode()) {
+            case 200:
+                final Map<?, ?> map = Json.deserialize(response.body(), Map.class);
+                final var object = map != null ? map.get("url") : null;
+                if (object == null) {
+                    logger.severe("Unexpected LichessImport 200"
+                                  + " body=" + response.body());
+                    return null;
+                }
+                return object.toString();
+            case 303:
+                final var location = response.headers().firstValue("location");
+                if (location.isEmpty()) {
+                    logger.severe("Unexpected LichessImport 303"
+                                  + " header=" + response.headers());
+                    return null;
+                }
+                return httpRequest.uri().resolve(location.get()).toString();
+            default:
+                logger.severe("Unexpected LichessImport HTTP"
+                              + " response=" + response
+                              + " header=" + response.headers()
+                              + " body=" + response.body());
                 return null;
             }
-            return object.toString();
-        case 303:
-            final var list = response.headers().map().get("location");
-            if (list == null || list.isEmpty()) {
-                plugin().getLogger().severe("Unexpected LichessImport 303"
-                                          + " header=" + response.headers());
-                return null;
+        }
+
+        /**
+         * Free the slot for the next waiting import and call back on
+         * the executor.
+         */
+        private void complete(String result) {
+            final Request next;
+            synchronized (LichessImport.this) {
+                next = waiting.poll();
+                if (next == null) inFlight -= 1;
+            }
+            if (next != null) next.send(1);
+            try {
+                callbackExecutor.execute(() -> callback.accept(result));
+            } catch (RejectedExecutionException ree) {
+                logger.info("[LichessImport] Finished after disable: " + result);
             }
-            return "https://lichess.org" + list.get(0);
-        default:
-            plugin().getLogger().severe("Unexpected LichessImport HTTP"
-                                      + " response=" + response
-                                      + " header=" + response.headers()
-                                      + " body=" + response.body());
-            return null;
         }
     }
 
-    public void async() {
-        Bukkit.getScheduler().runTaskAsynchronously(plugin(), () -> {
-                final String result = sync();
-                Bukkit.getScheduler().runTask(plugin(), () -> callback.accept(result));
-            });
+    private static long getRetryAfter(HttpResponse<String> response) {
+        final var value = response.headers().firstValue("Retry-After");
+        if (value.isEmpty()) return 0L;
+        try {
+            return Long.parseLong(value.get().trim()) * 1000L;
+        } catch (NumberFormatException nfe) {
+            return 0L;
+        }
     }
 }
@@ -0,0 +1,57 @@
+package com.cavetale.chess.spectate;
+
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessTurnState;
+
+/**
+ * An immutable snapshot of a board, taken after every move.  It can
+ * be handed to any thread and any number of subscribers.  The clocks
+ * are taken at the time of the snapshot; the running one continues
+ * from there, see getClockMillis.
+ *
+ * @param boardId the board
+ * @param sequence counts up with every snapshot of the board
+ * @param fen the position
+ * @param lastMove the move which led to the position, or null
+ * @param state the state of the current turn
+ * @param clockColor the color whose clock runs, or null if no game
+ * is running
+ * @param time the wall clock time of the snapshot
+ */
+public record ChessSnapshot(String boardId,
+                            long sequence,
+                            String fen,
+                            ChessMove lastMove,
+                            ChessTurnState state,
+                            String whiteName,
+                            String blackName,
+                            long whiteMillis,
+                            long blackMillis,
+                            ChessColor clockColor,
+                            long time) {
+    public String getName(ChessColor color) {
+        return color == ChessColor.WHITE ? whiteName : blackName;
+    }
+
+    /**
+     * The time left on a clock at the given wall clock time.
+     */
+    public long getClockMillis(ChessColor color, long now) {
+        final long millis = color == ChessColor.WHITE ? whiteMillis : blackMillis;
+        return color == clockColor
+            ? Math.max(0L, millis - Math.max(0L, now - time))
+            : millis;
+    }
+
+    /**
+     * A game is running if a clock is.
+     */
+    public boolean isRunning() {
+        return clockColor != null;
+    }
+
+    public ChessColor getActiveColor() {
+        return fen.contains(" b ") ? ChessColor.BLACK : ChessColor.WHITE;
+    }
+}
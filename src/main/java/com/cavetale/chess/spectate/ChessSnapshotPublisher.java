@@ -0,0 +1,212 @@
+package com.cavetale.chess.spectate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import lombok.Setter;
+
+/**
+ * Fan out board snapshots to subscribers.  Publishing only replaces
+ * the latest snapshot of the board and marks it dirty, so a move
+ * costs the same no matter how many are watching.  The owner calls
+ * flush regularly, which hands the latest snapshot of every dirty
+ * board to its subscribers.
+ *
+ * Every subscriber has a mailbox of one snapshot per board.  A
+ * subscriber which is still busy with an older snapshot, for example
+ * on a slow executor, only receives the newest one once it is done;
+ * anything in between is skipped.  Snapshots of one board arrive in
+ * order, and never concurrently for the same subscriber.
+ */
+public final class ChessSnapshotPublisher {
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Queue<Channel> dirty = new ConcurrentLinkedQueue<>();
+    /** Subscribers to every board. */
+    private final List<Subscription> globalSubscriptions = new CopyOnWriteArrayList<>();
+    /** Called with the board id whenever a board is cleared. */
+    private final List<Consumer<String>> clearListeners = new CopyOnWriteArrayList<>();
+    /** Called when a subscriber throws. */
+    @Setter private Consumer<RuntimeException> errorHandler = RuntimeException::printStackTrace;
+
+    private static final class Channel {
+        private final String boardId;
+        private final AtomicReference<ChessSnapshot> latest = new AtomicReference<>();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        Channel(final String boardId) {
+            this.boardId = boardId;
+        }
+    }
+
+    /**
+     * One subscriber of one board, or of all boards.  Cancel it to
+     * stop receiving snapshots.
+     */
+    public final class Subscription {
+        private final Channel channel;
+        private final Consumer<ChessSnapshot> consumer;
+        private final Executor executor;
+        private final Map<String, ChessSnapshot> mailbox = new ConcurrentHashMap<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        private Subscription(final Channel channel, final Consumer<ChessSnapshot> consumer, final Executor executor) {
+            this.channel = channel;
+            this.consumer = consumer;
+            this.executor = executor;
+        }
+
+        public String getBoardId() {
+            return channel != null ? channel.boardId : null;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            mailbox.clear();
+            if (channel != null) {
+                channel.subscriptions.remove(this);
+            } else {
+                globalSubscriptions.remove(this);
+            }
+        }
+
+        private void offer(ChessSnapshot snapshot) {
+            if (cancelled) return;
+            mailbox.put(snapshot.boardId(), snapshot);
+            if (pending.getAndIncrement() == 0) executor.execute(this::drain);
+        }
+
+        /**
+         * Deliver the mailbox until no offer came in meanwhile.
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                for (String boardId : mailbox.keySet()) {
+                    final ChessSnapshot snapshot = mailbox.remove(boardId);
+                    if (snapshot == null || cancelled) continue;
+                    try {
+                        consumer.accept(snapshot);
+                    } catch (RuntimeException re) {
+                        // Keep the mailbox going
+                        errorHandler.accept(re);
+                    }
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    private Channel getChannel(String boardId) {
+        return channels.computeIfAbsent(boardId, Channel::new);
+    }
+
+    /**
+     * Replace the latest snapshot of its board.  Any thread may call
+     * this.
+     */
+    public void publish(ChessSnapshot snapshot) {
+        final Channel channel = getChannel(snapshot.boardId());
+        channel.latest.set(snapshot);
+        if (channel.dirty.compareAndSet(false, true)) dirty.add(channel);
+    }
+
+    public ChessSnapshot getLatest(String boardId) {
+        final Channel channel = channels.get(boardId);
+        return channel != null ? channel.latest.get() : null;
+    }
+
+    /**
+     * The latest snapshot of every board which published one.
+     */
+    public List<ChessSnapshot> getAllLatest() {
+        final List<ChessSnapshot> result = new ArrayList<>();
+        for (Channel channel : channels.values()) {
+            final ChessSnapshot snapshot = channel.latest.get();
+            if (snapshot != null) result.add(snapshot);
+        }
+        return result;
+    }
+
+    /**
+     * Forget a board, for example when its world unloads.  The
+     * subscribers stay and receive the next snapshot, should the
+     * board come back.
+     */
+    public void clear(String boardId) {
+        final Channel channel = channels.get(boardId);
+        if (channel == null || channel.latest.getAndSet(null) == null) return;
+        for (Consumer<String> listener : clearListeners) {
+            try {
+                listener.accept(boardId);
+            } catch (RuntimeException re) {
+                errorHandler.accept(re);
+            }
+        }
+    }
+
+    /**
+     * Get told about cleared boards, in the thread which clears
+     * them.
+     */
+    public void addClearListener(Consumer<String> listener) {
+        clearListeners.add(listener);
+    }
+
+    public void removeClearListener(Consumer<String> listener) {
+        clearListeners.remove(listener);
+    }
+
+    /**
+     * Subscribe to one board.  The latest snapshot, if any, is
+     * delivered right away.
+     * @param executor runs the consumer
+     */
+    public Subscription subscribe(String boardId, Executor executor, Consumer<ChessSnapshot> consumer) {
+        final Channel channel = getChannel(boardId);
+        final Subscription result = new Subscription(channel, consumer, executor);
+        channel.subscriptions.add(result);
+        final ChessSnapshot latest = channel.latest.get();
+        if (latest != null) result.offer(latest);
+        return result;
+    }
+
+    /**
+     * Subscribe to the snapshots of every board.
+     * @param executor runs the consumer
+     */
+    public Subscription subscribeAll(Executor executor, Consumer<ChessSnapshot> consumer) {
+        final Subscription result = new Subscription(null, consumer, executor);
+        globalSubscriptions.add(result);
+        return result;
+    }
+
+    /**
+     * Deliver the latest snapshot of every board published since the
+     * last flush.
+     * @return the number of boards delivered
+     */
+    public int flush() {
+        int count = 0;
+        Channel channel;
+        while ((channel = dirty.poll()) != null) {
+            channel.dirty.set(false);
+            final ChessSnapshot snapshot = channel.latest.get();
+            if (snapshot == null) continue;
+            for (Subscription subscription : channel.subscriptions) subscription.offer(snapshot);
+            for (Subscription subscription : globalSubscriptions) subscription.offer(snapshot);
+            count += 1;
+        }
+        return count;
+    }
+}
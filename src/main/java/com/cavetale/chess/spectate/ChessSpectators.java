@@ -0,0 +1,230 @@
+package com.cavetale.chess.spectate;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessPiece;
+import com.cavetale.chess.board.ChessSquare;
+import com.cavetale.chess.board.ChessTurnState;
+import com.cavetale.chess.world.WorldChessBoard;
+import com.cavetale.core.event.hud.PlayerHudEvent;
+import com.cavetale.core.event.hud.PlayerHudPriority;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import lombok.Getter;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+import static com.cavetale.chess.ChessPlugin.plugin;
+import static net.kyori.adventure.text.Component.join;
+import static net.kyori.adventure.text.Component.newline;
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.Component.textOfChildren;
+import static net.kyori.adventure.text.JoinConfiguration.noSeparators;
+import static net.kyori.adventure.text.JoinConfiguration.separator;
+import static net.kyori.adventure.text.format.NamedTextColor.*;
+import static net.kyori.adventure.text.format.TextDecoration.BOLD;
+
+/**
+ * Let players watch a board from anywhere.  Boards publish a snapshot
+ * after every move, which is rendered once and sent to everyone
+ * watching that board.  Each watched board has one boss bar shared by
+ * its spectators, whose clocks are updated once per second.
+ */
+public final class ChessSpectators implements Listener {
+    @Getter private final ChessSnapshotPublisher publisher = new ChessSnapshotPublisher();
+    /** Spectated board id by player. */
+    private final Map<UUID, String> spectators = new HashMap<>();
+    private final Map<String, View> views = new HashMap<>();
+    private BukkitTask task;
+    private int ticks;
+
+    /**
+     * Everything about one watched board which is shared by its
+     * spectators.
+     */
+    private static final class View {
+        private final Set<UUID> players = new HashSet<>();
+        private ChessSnapshotPublisher.Subscription subscription;
+        private ChessSnapshot snapshot;
+        private BossBar bossBar;
+    }
+
+    public void enable() {
+        publisher.setErrorHandler(re -> plugin().getLogger().log(Level.SEVERE, "[ChessSpectators]", re));
+        task = Bukkit.getScheduler().runTaskTimer(plugin(), this::tick, 1L, 1L);
+        Bukkit.getPluginManager().registerEvents(this, plugin());
+    }
+
+    public void disable() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (View view : views.values()) view.subscription.cancel();
+        views.clear();
+        spectators.clear();
+    }
+
+    public String getSpectatedBoardId(Player player) {
+        return spectators.get(player.getUniqueId());
+    }
+
+    /**
+     * Start watching a board, and stop watching any other.  The
+     * latest position is shown right away.
+     */
+    public void spectate(Player player, String boardId) {
+        stop(player);
+        spectators.put(player.getUniqueId(), boardId);
+        View view = views.get(boardId);
+        if (view == null) {
+            view = new View();
+            views.put(boardId, view);
+            view.players.add(player.getUniqueId());
+            final View theView = view;
+            // Snapshots are delivered on the main thread, in tick
+            view.subscription = publisher.subscribe(boardId, Runnable::run, snapshot -> onSnapshot(theView, snapshot));
+        } else {
+            view.players.add(player.getUniqueId());
+            if (view.snapshot != null) player.sendMessage(renderBoard(view.snapshot));
+        }
+    }
+
+    /**
+     * Stop watching.
+     * @return true if the player was watching a board
+     */
+    public boolean stop(Player player) {
+        final String boardId = spectators.remove(player.getUniqueId());
+        if (boardId == null) return false;
+        final View view = views.get(boardId);
+        if (view == null) return true;
+        view.players.remove(player.getUniqueId());
+        if (view.players.isEmpty()) {
+            view.subscription.cancel();
+            views.remove(boardId);
+        }
+        return true;
+    }
+
+    private void tick() {
+        publisher.flush();
+        ticks += 1;
+        if (ticks % 20 == 0) {
+            for (View view : views.values()) updateBossBar(view);
+        }
+    }
+
+    /**
+     * Render the snapshot once and send it to everyone watching.
+     */
+    private void onSnapshot(View view, ChessSnapshot snapshot) {
+        final boolean first = view.snapshot == null;
+        view.snapshot = snapshot;
+        updateBossBar(view);
+        final Component message = first
+            ? renderBoard(snapshot)
+            : renderMove(snapshot);
+        for (UUID uuid : view.players) {
+            final Player player = Bukkit.getPlayer(uuid);
+            if (player != null) player.sendMessage(message);
+        }
+    }
+
+    private static Component renderMove(ChessSnapshot snapshot) {
+        final List<Component> line = new ArrayList<>();
+        line.add(text("[" + snapshot.boardId() + "] ", DARK_GRAY));
+        if (snapshot.lastMove() != null) {
+            final ChessColor mover = snapshot.getActiveColor().other();
+            line.add(text(snapshot.getName(mover), mover == ChessColor.WHITE ? WHITE : GRAY));
+            line.add(text(" plays ", GRAY));
+            line.add(text(snapshot.lastMove().toString(), GREEN));
+        } else {
+            line.add(text(snapshot.whiteName() + " vs " + snapshot.blackName(), GRAY));
+        }
+        final ChessTurnState state = snapshot.state();
+        if (state == ChessTurnState.CHECKMATE) {
+            line.add(text(" Checkmate!", GREEN, BOLD));
+        } else if (state == ChessTurnState.CHECK) {
+            line.add(text(" Check!", GREEN, BOLD));
+        } else if (state.isGameOver()) {
+            line.add(text(" Game over", GREEN));
+        }
+        return join(noSeparators(), line).hoverEvent(renderBoard(snapshot));
+    }
+
+    /**
+     * Render the position with white at the bottom.
+     */
+    private static Component renderBoard(ChessSnapshot snapshot) {
+        final ChessBoard board = new ChessBoard();
+        board.loadFenString(snapshot.fen());
+        final List<Component> lines = new ArrayList<>();
+        lines.add(text(snapshot.blackName(), GRAY));
+        for (int y = 7; y >= 0; y -= 1) {
+            final List<Component> row = new ArrayList<>();
+            for (int x = 0; x < 8; x += 1) {
+                final ChessSquare square = ChessSquare.at(x, y);
+                final ChessPiece piece = board.getPieceAt(square);
+                final boolean highlight = snapshot.lastMove() != null
+                    && (square == snapshot.lastMove().from() || square == snapshot.lastMove().to());
+                if (piece != null) {
+                    row.add(piece.getMytems().asComponent());
+                } else {
+                    final NamedTextColor color = highlight
+                        ? GREEN
+                        : (square.getColor() == ChessColor.WHITE ? GRAY : DARK_GRAY);
+                    row.add(text("\u25A0", color));
+                }
+            }
+            lines.add(join(noSeparators(), row));
+        }
+        lines.add(text(snapshot.whiteName(), WHITE));
+        return join(separator(newline()), lines);
+    }
+
+    /**
+     * Update the shared boss bar from the clocks of the snapshot.
+     */
+    private static void updateBossBar(View view) {
+        if (view.snapshot == null) return;
+        final ChessSnapshot snapshot = view.snapshot;
+        final long now = System.currentTimeMillis();
+        final Component name = textOfChildren(text(snapshot.whiteName() + " ", WHITE),
+                                              text(WorldChessBoard.formatClock(snapshot.getClockMillis(ChessColor.WHITE, now)), WHITE),
+                                              text(" | ", DARK_GRAY),
+                                              text(WorldChessBoard.formatClock(snapshot.getClockMillis(ChessColor.BLACK, now)), GRAY),
+                                              text(" " + snapshot.blackName(), GRAY));
+        if (view.bossBar == null) {
+            view.bossBar = BossBar.bossBar(name, 1f, BossBar.Color.WHITE, BossBar.Overlay.PROGRESS);
+        } else {
+            view.bossBar.name(name);
+        }
+    }
+
+    @EventHandler
+    private void onPlayerHud(PlayerHudEvent event) {
+        final String boardId = spectators.get(event.getPlayer().getUniqueId());
+        if (boardId == null) return;
+        final View view = views.get(boardId);
+        if (view == null || view.bossBar == null) return;
+        event.bossbar(PlayerHudPriority.LOW, view.bossBar);
+    }
+
+    @EventHandler
+    private void onPlayerQuit(PlayerQuitEvent event) {
+        stop(event.getPlayer());
+    }
+}
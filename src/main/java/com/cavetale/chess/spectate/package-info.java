@@ -0,0 +1,6 @@
+/**
+ * This package lets players watch a board from anywhere.  Boards
+ * publish immutable snapshots of their position, which are fanned
+ * out to any number of subscribers.
+ */
+package com.cavetale.chess.spectate;
@@ -1,27 +1,36 @@
 package com.cavetale.chess.sql;
 
 import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessGame;
 import com.cavetale.chess.world.WorldChessBoard;
 import com.winthier.sql.SQLRow;
+import com.winthier.sql.SQLRow.Key;
 import com.winthier.sql.SQLRow.Name;
 import com.winthier.sql.SQLRow.NotNull;
+import java.util.Base64;
 import java.util.Date;
 import lombok.Data;
+import static com.cavetale.chess.ChessPlugin.plugin;
 
 @Name("games")
 @NotNull
 @Data
+@Key(name = "white_start_time", value = {"whiteName", "startTime"})
+@Key(name = "black_start_time", value = {"blackName", "startTime"})
 public final class SQLChessGame implements SQLRow {
     @Id private Integer id;
     private Date startTime;
     private Date endTime;
     @VarChar(15) private String timeBank;
     private int whiteType;
-    @Keyed @VarChar(40) private String whiteName;
+    @VarChar(40) private String whiteName;
     private int blackType;
-    @Keyed @VarChar(40) private String blackName;
+    @VarChar(40) private String blackName;
+    @Nullable @VarChar(64) private String whiteDisplayName;
+    @Nullable @VarChar(64) private String blackDisplayName;
     private int moves;
-    @Text private String pgn;
+    @Text private String pgn; // Empty with CompactGameStorage
+    @Nullable @Text private String gameData; // ChessGame#toBinary, Base64
     @VarChar(40) private String result;
     private int winner;
     @Nullable private String lichessUrl;
@@ -41,8 +50,13 @@ public final class SQLChessGame implements SQLRow {
         final var black = wcb.getSaveTag().getBlack();
         blackType = black.isPlayer() ? 0 : 1;
         blackName = black.getDatabaseName();
+        whiteDisplayName = wcb.getGame().getWhiteName();
+        blackDisplayName = wcb.getGame().getBlackName();
         moves = wcb.getGame().getMoveCount();
-        pgn = wcb.getGame().toPgnString();
+        gameData = Base64.getEncoder().encodeToString(wcb.getGame().toBinary());
+        pgn = plugin().isCompactGameStorage()
+            ? ""
+            : wcb.getGame().toPgnString();
         result = wcb.getGame().getCurrentTurn().getState().name().toLowerCase();
         final var theWinner = wcb.getGame().getCurrentTurn().getWinner();
         if (theWinner == null) {
@@ -53,4 +67,24 @@ public final class SQLChessGame implements SQLRow {
             winner = 2;
         }
     }
+
+    /**
+     * Load the game, preferring the binary data over the PGN.
+     * @throws IllegalArgumentException if the game cannot be loaded
+     */
+    public ChessGame parseGame() {
+        final ChessGame game = new ChessGame();
+        if (gameData != null) {
+            game.loadBinary(Base64.getDecoder().decode(gameData));
+        } else {
+            game.loadPgnString(pgn);
+        }
+        return game;
+    }
+
+    public String getPgnString() {
+        return pgn == null || pgn.isEmpty()
+            ? parseGame().toPgnString()
+            : pgn;
+    }
 }
@@ -0,0 +1,55 @@
+package com.cavetale.chess.sql;
+
+import com.cavetale.core.playercache.PlayerCache;
+import com.winthier.sql.SQLRow;
+import com.winthier.sql.SQLRow.Name;
+import com.winthier.sql.SQLRow.NotNull;
+import java.util.Date;
+import java.util.UUID;
+import lombok.Data;
+
+/**
+ * The summary columns of the games table, for listing games without
+ * fetching their PGN or binary data.  See SQLChessGame.
+ */
+@Name("games")
+@NotNull
+@Data
+public final class SQLChessGameSummary implements SQLRow {
+    @Id private Integer id;
+    private Date startTime;
+    private int whiteType;
+    @VarChar(40) private String whiteName;
+    private int blackType;
+    @VarChar(40) private String blackName;
+    @Nullable @VarChar(64) private String whiteDisplayName;
+    @Nullable @VarChar(64) private String blackDisplayName;
+    private int moves;
+    @VarChar(40) private String result;
+    private int winner;
+    @Nullable private String lichessUrl;
+
+    public SQLChessGameSummary() { }
+
+    public String getWhiteDisplay() {
+        return getDisplay(whiteDisplayName, whiteType, whiteName);
+    }
+
+    public String getBlackDisplay() {
+        return getDisplay(blackDisplayName, blackType, blackName);
+    }
+
+    /**
+     * Older rows do not store the display name, so players are looked
+     * up by their UUID.
+     */
+    private static String getDisplay(String displayName, int type, String databaseName) {
+        if (displayName != null) return displayName;
+        if (type != 0) return databaseName;
+        try {
+            return PlayerCache.nameForUuid(UUID.fromString(databaseName));
+        } catch (IllegalArgumentException iae) {
+            return databaseName;
+        }
+    }
+}
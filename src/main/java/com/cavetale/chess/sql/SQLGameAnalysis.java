@@ -0,0 +1,67 @@
+package com.cavetale.chess.sql;
+
+import com.cavetale.chess.ai.ChessGameAnalysis;
+import com.winthier.sql.SQLRow;
+import com.winthier.sql.SQLRow.Name;
+import com.winthier.sql.SQLRow.NotNull;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.Data;
+
+/**
+ * The engine analysis of one row in the games table, see
+ * SQLGameAnalyzer.
+ */
+@Name("game_analysis")
+@NotNull
+@Data
+public final class SQLGameAnalysis implements SQLRow {
+    @Id private Integer id;
+    @Unique private int gameId;
+    private Date analysisTime;
+    private int depth;
+    private double whiteAccuracy;
+    private double blackAccuracy;
+    private int whiteAverageLoss;
+    private int blackAverageLoss;
+    private int whiteInaccuracies;
+    private int whiteMistakes;
+    private int whiteBlunders;
+    private int blackInaccuracies;
+    private int blackMistakes;
+    private int blackBlunders;
+    @Text private String evals; // Centipawns for white, one per position
+    @Text private String blunders; // Ply numbers
+
+    public SQLGameAnalysis() { }
+
+    public SQLGameAnalysis(final int gameId, final int depth, final ChessGameAnalysis analysis) {
+        this.gameId = gameId;
+        this.analysisTime = new Date();
+        this.depth = depth;
+        final var white = analysis.getWhite();
+        final var black = analysis.getBlack();
+        whiteAccuracy = Math.round(white.getAccuracy() * 10.0) / 10.0;
+        blackAccuracy = Math.round(black.getAccuracy() * 10.0) / 10.0;
+        whiteAverageLoss = white.getAverageLoss();
+        blackAverageLoss = black.getAverageLoss();
+        whiteInaccuracies = white.getInaccuracies().size();
+        whiteMistakes = white.getMistakes().size();
+        whiteBlunders = white.getBlunders().size();
+        blackInaccuracies = black.getInaccuracies().size();
+        blackMistakes = black.getMistakes().size();
+        blackBlunders = black.getBlunders().size();
+        final StringBuilder sb = new StringBuilder();
+        for (int eval : analysis.getEvals()) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(eval);
+        }
+        evals = sb.toString();
+        blunders = join(white.getBlunders()) + ";" + join(black.getBlunders());
+    }
+
+    private static String join(List<Integer> list) {
+        return list.stream().map(Object::toString).collect(Collectors.joining(","));
+    }
+}
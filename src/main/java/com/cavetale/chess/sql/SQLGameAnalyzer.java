@@ -0,0 +1,216 @@
+package com.cavetale.chess.sql;
+
+import com.cavetale.chess.ai.ChessGameAnalysis;
+import com.cavetale.chess.ai.ChessSearch;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import static com.cavetale.chess.ChessPlugin.plugin;
+
+/**
+ * Analyze finished games with the AlphaBeta engine and store the
+ * result in the game_analysis table.  A fixed number of low priority
+ * workers, each with its own search, take games from a queue, so
+ * analysis never uses more than the configured cores.  The queue is
+ * bounded by a semaphore.  Finished games are offered to the queue
+ * and dropped if it is full; a backfill walks the games table on its
+ * own thread and waits for room, so old games can be analyzed
+ * overnight.  A game is never queued twice,
+ * and skipped if it was analyzed meanwhile.
+ */
+public final class SQLGameAnalyzer {
+    public static final int QUEUE_SIZE = 100;
+    public static final int PAGE_SIZE = 100;
+    private ThreadPoolExecutor executor;
+    private ExecutorService backfillExecutor;
+    /** One permit for each game which may be queued or analyzed. */
+    private final Semaphore permits = new Semaphore(QUEUE_SIZE);
+    private final List<ChessSearch> searches = new ArrayList<>();
+    private ThreadLocal<ChessSearch> search;
+    private long millis;
+    private int depth;
+    @Getter private boolean auto;
+    @Getter private final AtomicInteger analyzedCount = new AtomicInteger();
+    /** The ids of the games which are queued or being analyzed. */
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param workers the number of games analyzed at once
+     * @param threads the search threads per game
+     * @param tableBits the transposition table size of each search
+     * @param theMillis the search time per position
+     * @param theDepth the maximum search depth per position
+     * @param theAuto analyze every game once it was saved
+     */
+    public void enable(int workers, int threads, int tableBits, long theMillis, int theDepth, boolean theAuto) {
+        millis = theMillis;
+        depth = theDepth;
+        auto = theAuto;
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                                          new LinkedBlockingQueue<>(),
+                                          runnable -> {
+                                              final Thread thread = new Thread(runnable, "Chess-Analyzer-" + count.incrementAndGet());
+                                              thread.setDaemon(true);
+                                              thread.setPriority(Thread.MIN_PRIORITY);
+                                              return thread;
+                                          });
+        executor.prestartAllCoreThreads();
+        backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "Chess-Analyzer-Backfill");
+                thread.setDaemon(true);
+                return thread;
+            });
+        search = ThreadLocal.withInitial(() -> {
+                final ChessSearch result = new ChessSearch(threads, tableBits);
+                synchronized (searches) {
+                    searches.add(result);
+                }
+                return result;
+            });
+    }
+
+    public void disable() {
+        if (executor == null) return;
+        backfillExecutor.shutdownNow();
+        backfillExecutor = null;
+        // Running games release their permit when they stop
+        permits.release(executor.shutdownNow().size());
+        executor = null;
+        pending.clear();
+        synchronized (searches) {
+            for (ChessSearch it : searches) it.shutdown();
+            searches.clear();
+        }
+    }
+
+    public int getQueueSize() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Offer a saved game to the queue without waiting.
+     * @return true if the game was queued
+     */
+    public boolean submit(SQLChessGame row) {
+        if (executor == null || row.getId() == null) return false;
+        if (!pending.add(row.getId())) return false;
+        if (!permits.tryAcquire()) {
+            pending.remove(row.getId());
+            plugin().getLogger().warning("[SQLGameAnalyzer] Queue full, skipping game " + row.getId());
+            return false;
+        }
+        return execute(executor, row);
+    }
+
+    /**
+     * Run a game which holds a permit and is pending.
+     */
+    private boolean execute(ThreadPoolExecutor theExecutor, SQLChessGame row) {
+        try {
+            theExecutor.execute(() -> analyze(row));
+            return true;
+        } catch (RejectedExecutionException ree) {
+            // Shut down
+            pending.remove(row.getId());
+            permits.release();
+            return false;
+        }
+    }
+
+    private void analyze(SQLChessGame row) {
+        try {
+            final boolean done = !plugin().getDatabase().find(SQLGameAnalysis.class)
+                .eq("gameId", row.getId())
+                .limit(1)
+                .findList().isEmpty();
+            if (done) return;
+            final ChessGameAnalysis analysis = ChessGameAnalysis.analyze(row.parseGame(), search.get(), millis, depth);
+            plugin().getDatabase().insert(new SQLGameAnalysis(row.getId(), depth, analysis));
+            analyzedCount.incrementAndGet();
+        } catch (RuntimeException re) {
+            plugin().getLogger().log(Level.WARNING, "[SQLGameAnalyzer] Game " + row.getId(), re);
+        } finally {
+            pending.remove(row.getId());
+            permits.release();
+        }
+    }
+
+    /**
+     * Queue games which have not been analyzed yet, oldest first,
+     * waiting for room in the queue.  The callback is called on the
+     * main thread with the number of games queued.
+     * @return false if the analyzer is disabled
+     */
+    public boolean backfill(int limit, Consumer<Integer> callback) {
+        if (backfillExecutor == null) return false;
+        backfillExecutor.execute(() -> {
+                int queued = 0;
+                try {
+                    queued = backfillSync(limit);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException re) {
+                    plugin().getLogger().log(Level.SEVERE, "[SQLGameAnalyzer] backfill", re);
+                }
+                final int result = queued;
+                if (plugin().isEnabled()) {
+                    Bukkit.getScheduler().runTask(plugin(), () -> callback.accept(result));
+                }
+            });
+        return true;
+    }
+
+    private int backfillSync(int limit) throws InterruptedException {
+        int lastId = 0;
+        int queued = 0;
+        while (queued < limit) {
+            final List<SQLChessGame> page = plugin().getDatabase().find(SQLChessGame.class)
+                .gt("id", lastId)
+                .orderByAscending("id")
+                .limit(PAGE_SIZE)
+                .findList();
+            if (page.isEmpty()) break;
+            final int firstId = page.get(0).getId();
+            lastId = page.get(page.size() - 1).getId();
+            final Set<Integer> done = new HashSet<>();
+            for (SQLGameAnalysis it : plugin().getDatabase().find(SQLGameAnalysis.class)
+                     .gt("gameId", firstId - 1)
+                     .lt("gameId", lastId + 1)
+                     .findList()) {
+                done.add(it.getGameId());
+            }
+            for (SQLChessGame row : page) {
+                if (done.contains(row.getId())) continue;
+                final ThreadPoolExecutor theExecutor = executor;
+                if (theExecutor == null) return queued;
+                if (!pending.add(row.getId())) continue;
+                // Block until there is room, instead of dropping
+                try {
+                    permits.acquire();
+                } catch (InterruptedException ie) {
+                    pending.remove(row.getId());
+                    throw ie;
+                }
+                if (!execute(theExecutor, row)) return queued;
+                queued += 1;
+                if (queued >= limit) break;
+            }
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,135 @@
+package com.cavetale.chess.sql;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.Bukkit;
+import static com.cavetale.chess.ChessPlugin.plugin;
+
+/**
+ * Export games from the database into one multi-game PGN file.
+ * Rows are fetched page by page in order of their id, so the result
+ * set is never held in memory at once.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class SQLGameExport {
+    public static final int PAGE_SIZE = 500;
+    private final File file;
+    /** The database name of a player or engine, or null for all games. */
+    private final String playerName;
+    private int count;
+    private int errors;
+    private boolean success;
+    /** The reason why the export failed, if it did. */
+    private String failure;
+
+    /**
+     * Run the export.  This queries the database synchronously, so
+     * it must not be called on the main thread.
+     */
+    public void sync() throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            final Pager white = new Pager(playerName != null ? "whiteName" : null);
+            final Pager black = new Pager(playerName != null ? "blackName" : null);
+            while (true) {
+                final SQLChessGame row;
+                if (playerName == null) {
+                    row = white.poll();
+                } else {
+                    // Merge both sides by id
+                    final SQLChessGame a = white.peek();
+                    final SQLChessGame b = black.peek();
+                    if (a == null && b == null) {
+                        row = null;
+                    } else if (b == null || (a != null && a.getId() < b.getId())) {
+                        row = white.poll();
+                    } else if (a == null || b.getId() < a.getId()) {
+                        row = black.poll();
+                    } else {
+                        white.poll();
+                        row = black.poll();
+                    }
+                }
+                if (row == null) break;
+                final String pgn;
+                try {
+                    pgn = row.getPgnString();
+                } catch (RuntimeException re) {
+                    // One bad row should not end the export
+                    plugin().getLogger().log(Level.WARNING, "[SQLGameExport] Game " + row.getId(), re);
+                    errors += 1;
+                    continue;
+                }
+                writer.write(pgn);
+                writer.write("\n\n");
+                count += 1;
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        success = true;
+    }
+
+    /**
+     * Run the export on an async thread and call back in the main
+     * thread.
+     */
+    public void async(Consumer<SQLGameExport> callback) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin(), () -> {
+                try {
+                    sync();
+                } catch (IOException | RuntimeException e) {
+                    plugin().getLogger().log(Level.SEVERE, "[SQLGameExport] " + file, e);
+                    failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+                }
+                Bukkit.getScheduler().runTask(plugin(), () -> callback.accept(this));
+            });
+    }
+
+    /**
+     * Fetch rows matching the player in pages, with keyset
+     * pagination on the id.
+     */
+    @RequiredArgsConstructor
+    private final class Pager {
+        private final String field;
+        private final ArrayDeque<SQLChessGame> page = new ArrayDeque<>();
+        private int lastId = 0;
+        private boolean done;
+
+        private SQLChessGame peek() {
+            if (page.isEmpty() && !done) fetch();
+            return page.peek();
+        }
+
+        private SQLChessGame poll() {
+            if (page.isEmpty() && !done) fetch();
+            return page.poll();
+        }
+
+        private void fetch() {
+            var finder = plugin().getDatabase().find(SQLChessGame.class)
+                .gt("id", lastId);
+            if (field != null) {
+                finder = finder.eq(field, playerName);
+            }
+            final List<SQLChessGame> list = finder
+                .orderByAscending("id")
+                .limit(PAGE_SIZE)
+                .findList();
+            if (list.size() < PAGE_SIZE) done = true;
+            if (!list.isEmpty()) lastId = list.get(list.size() - 1).getId();
+            page.addAll(list);
+        }
+    }
+}
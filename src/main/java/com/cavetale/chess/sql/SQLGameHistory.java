@@ -0,0 +1,115 @@
+package com.cavetale.chess.sql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.Bukkit;
+import static com.cavetale.chess.ChessPlugin.plugin;
+
+/**
+ * Fetch one page of the games of a player, newest first.  Pages are
+ * found by the start time and id of the last game on the previous
+ * page, not by an offset, so every page costs the same no matter how
+ * many games there are.  The id breaks ties between games which
+ * started at the same time.  Only the summary columns are fetched.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class SQLGameHistory {
+    /** The database name of a player or engine. */
+    private final String playerName;
+    /** Only games which started before this time, or null. */
+    private final Date before;
+    /** Only games with a lower id which started at the same time. */
+    private final int beforeId;
+    private final int pageSize;
+    private final List<SQLChessGameSummary> games = new ArrayList<>();
+    /** The cursor for the next page, or null if this is the last. */
+    private Date next;
+    private int nextId;
+
+    private static final Comparator<SQLChessGameSummary> NEWEST_FIRST = Comparator
+        .comparing(SQLChessGameSummary::getStartTime)
+        .thenComparing(SQLChessGameSummary::getId)
+        .reversed();
+
+    /**
+     * Run the query.  This queries the database synchronously, so it
+     * must not be called on the main thread.
+     */
+    public void sync() {
+        // One query per side, so each can use its index
+        final List<SQLChessGameSummary> white = fetch("whiteName");
+        final List<SQLChessGameSummary> black = fetch("blackName");
+        int i = 0;
+        int j = 0;
+        while (games.size() < pageSize && (i < white.size() || j < black.size())) {
+            if (j >= black.size()) {
+                games.add(white.get(i++));
+            } else if (i >= white.size()) {
+                games.add(black.get(j++));
+            } else {
+                final int cmp = NEWEST_FIRST.compare(white.get(i), black.get(j));
+                if (cmp < 0) {
+                    games.add(white.get(i++));
+                } else if (cmp > 0) {
+                    games.add(black.get(j++));
+                } else {
+                    // Playing both sides
+                    games.add(white.get(i++));
+                    j += 1;
+                }
+            }
+        }
+        if (i < white.size() || j < black.size()) {
+            final SQLChessGameSummary last = games.get(games.size() - 1);
+            next = last.getStartTime();
+            nextId = last.getId();
+        }
+    }
+
+    /**
+     * Fetch one more row than needed, to find out if there is a next
+     * page.  With a cursor, the games which started at the same time
+     * come first, followed by the older ones.
+     */
+    private List<SQLChessGameSummary> fetch(String field) {
+        final List<SQLChessGameSummary> result = new ArrayList<>();
+        if (before != null) {
+            result.addAll(plugin().getDatabase().find(SQLChessGameSummary.class)
+                          .eq(field, playerName)
+                          .eq("startTime", before)
+                          .lt("id", beforeId)
+                          .orderByDescending("id")
+                          .limit(pageSize + 1)
+                          .findList());
+            if (result.size() > pageSize) return result;
+        }
+        var finder = plugin().getDatabase().find(SQLChessGameSummary.class)
+            .eq(field, playerName);
+        if (before != null) {
+            finder = finder.lt("startTime", before);
+        }
+        result.addAll(finder
+                      .orderByDescending("startTime")
+                      .orderByDescending("id")
+                      .limit(pageSize + 1 - result.size())
+                      .findList());
+        return result;
+    }
+
+    /**
+     * Run the query on an async thread and call back in the main
+     * thread.
+     */
+    public void async(Consumer<SQLGameHistory> callback) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin(), () -> {
+                sync();
+                Bukkit.getScheduler().runTask(plugin(), () -> callback.accept(this));
+            });
+    }
+}
@@ -0,0 +1,332 @@
+package com.cavetale.chess.sql;
+
+import com.cavetale.core.util.Json;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+import static com.cavetale.chess.ChessPlugin.plugin;
+
+/**
+ * Insert finished games into the database in batches, off the main
+ * thread.  A batch which fails repeatedly is written to a local
+ * spool file, one JSON entry per line.  The spool is put back into
+ * the queue on startup and after the next successful batch.
+ *
+ * Updates of queued rows go through the same queue, so they are
+ * written after the insert.  Pending updates are spooled along with
+ * the rows.  The spooled rows stay in memory, so an update of a
+ * spooled row rewrites the spool file.
+ */
+public final class SQLGameQueue {
+    public static final int BATCH_SIZE = 50;
+    public static final int MAX_ATTEMPTS = 3;
+    private static final long FLUSH_INTERVAL = 2L; // Seconds
+    private final List<Entry> queue = new ArrayList<>();
+    private ScheduledExecutorService executor;
+    private final List<Entry> spooled = new ArrayList<>();
+    private File spoolFile;
+
+    public void enable() {
+        spoolFile = new File(plugin().getDataFolder(), "games-spool.jsonl");
+        loadSpool();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "Chess-GameQueue");
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.scheduleWithFixedDelay(this::flushAll, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the background thread and insert whatever is still
+     * queued in the calling thread.  Rows which cannot be inserted
+     * end up in the spool file.
+     */
+    public void disable() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30L, TimeUnit.SECONDS)) {
+                    plugin().getLogger().warning("[SQLGameQueue] Timed out waiting for queue thread");
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        flushAll();
+        final List<Entry> rest;
+        synchronized (queue) {
+            rest = new ArrayList<>(queue);
+            queue.clear();
+        }
+        if (!rest.isEmpty()) spool(rest);
+        int callbacks = 0;
+        synchronized (this) {
+            for (Entry entry : spooled) {
+                if (entry.callback() != null) callbacks += 1;
+            }
+        }
+        if (callbacks > 0) {
+            plugin().getLogger().warning("[SQLGameQueue] Dropping " + callbacks + " callback(s) of spooled game(s)");
+        }
+    }
+
+    public void add(SQLChessGame row) {
+        add(row, null);
+    }
+
+    /**
+     * Queue a row.  The callback is called on the main thread once the
+     * row was inserted and has its id.  Rows in the spool keep their
+     * callback until the server stops.
+     */
+    public void add(SQLChessGame row, Consumer<SQLChessGame> callback) {
+        synchronized (queue) {
+            queue.add(new Entry(row, callback, null));
+        }
+    }
+
+    /**
+     * Set the Lichess URL of a row which was queued before.  The row
+     * is changed right away, so it is saved with the URL if it was
+     * not inserted yet, or spooled with it.  Otherwise the column is
+     * updated once the insert is through.
+     */
+    public void updateLichessUrl(SQLChessGame row, String url) {
+        synchronized (queue) {
+            row.setLichessUrl(url);
+            queue.add(new Entry(row, null, "lichessUrl"));
+        }
+    }
+
+    public int size() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    private void flushAll() {
+        try {
+            while (flush()) continue;
+        } catch (RuntimeException re) {
+            // Keep the scheduled task alive
+            plugin().getLogger().log(Level.SEVERE, "[SQLGameQueue] flush", re);
+        }
+    }
+
+    /**
+     * Insert the next batch.
+     * @return true if a batch was inserted and more may follow
+     */
+    private boolean flush() {
+        final List<Entry> entries;
+        synchronized (queue) {
+            if (queue.isEmpty()) return false;
+            final List<Entry> head = queue.subList(0, Math.min(BATCH_SIZE, queue.size()));
+            entries = new ArrayList<>(head);
+            head.clear();
+        }
+        final List<SQLChessGame> batch = new ArrayList<>(entries.size());
+        final List<Entry> updates = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.column() == null) {
+                batch.add(entry.row());
+            } else {
+                updates.add(entry);
+            }
+        }
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt += 1) {
+            // Updates always come after their insert
+            if (batch.isEmpty() || insert(batch)) {
+                if (!batch.isEmpty()) {
+                    plugin().getLogger().info("[SQLGameQueue] Saved " + batch.size() + " game(s)");
+                }
+                final List<Entry> failed = new ArrayList<>();
+                for (Entry entry : updates) {
+                    if (!update(entry)) failed.add(entry);
+                }
+                if (!failed.isEmpty()) spool(failed);
+                callback(entries);
+                analyze(batch);
+                loadSpool();
+                return true;
+            }
+            if (attempt < MAX_ATTEMPTS && executor != null) {
+                try {
+                    Thread.sleep(1000L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        spool(entries);
+        return false;
+    }
+
+    /**
+     * Insert all rows with one statement.
+     */
+    private static boolean insert(List<SQLChessGame> batch) {
+        try {
+            return plugin().getDatabase().insert(batch) == batch.size();
+        } catch (RuntimeException re) {
+            plugin().getLogger().log(Level.WARNING, "[SQLGameQueue] insert " + batch.size(), re);
+            return false;
+        }
+    }
+
+    /**
+     * Update one column of an inserted row.  A row without an id is
+     * still queued or spooled and carries the new value.
+     * @return false if the update failed and must be spooled
+     */
+    private boolean update(Entry entry) {
+        final SQLChessGame row = entry.row();
+        if (row.getId() == null) {
+            rewriteSpool(row);
+            return true;
+        }
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt += 1) {
+            try {
+                if (plugin().getDatabase().update(row, entry.column()) == 1) return true;
+            } catch (RuntimeException re) {
+                plugin().getLogger().log(Level.WARNING, "[SQLGameQueue] update " + row.getId() + " " + entry.column(), re);
+            }
+        }
+        return false;
+    }
+
+    private static void analyze(List<SQLChessGame> batch) {
+        final SQLGameAnalyzer analyzer = plugin().getGameAnalyzer();
+        if (!analyzer.isAuto()) return;
+        for (SQLChessGame row : batch) analyzer.submit(row);
+    }
+
+    private void callback(List<Entry> entries) {
+        // No more tasks can be scheduled while disabling
+        if (executor == null || !plugin().isEnabled()) {
+            int callbacks = 0;
+            for (Entry entry : entries) {
+                if (entry.callback() != null) callbacks += 1;
+            }
+            if (callbacks > 0) {
+                plugin().getLogger().warning("[SQLGameQueue] Dropping " + callbacks + " callback(s) while disabled");
+            }
+            return;
+        }
+        Bukkit.getScheduler().runTask(plugin(), () -> {
+                for (Entry entry : entries) {
+                    if (entry.callback() != null) entry.callback().accept(entry.row());
+                }
+            });
+    }
+
+    /**
+     * Add entries to the spool.  Updates of rows without an id are
+     * left out, because the row itself is queued or spooled.
+     */
+    private synchronized void spool(List<Entry> entries) {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.column() != null && entry.row().getId() == null) continue;
+            spooled.add(entry);
+            count += 1;
+        }
+        if (count == 0) return;
+        if (writeSpool()) {
+            plugin().getLogger().warning("[SQLGameQueue] Spooled " + count + " entries to " + spoolFile);
+        }
+    }
+
+    /**
+     * Write the spool again if it holds the row, so it is saved with
+     * its latest values.
+     */
+    private synchronized void rewriteSpool(SQLChessGame row) {
+        for (Entry entry : spooled) {
+            if (entry.row() == row) {
+                writeSpool();
+                return;
+            }
+        }
+    }
+
+    private synchronized boolean writeSpool() {
+        try (BufferedWriter writer = Files.newBufferedWriter(spoolFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Entry entry : spooled) {
+                writer.write(Json.serialize(new SpoolLine(entry.row(), entry.column())));
+                writer.write("\n");
+            }
+        } catch (IOException ioe) {
+            plugin().getLogger().log(Level.SEVERE, "[SQLGameQueue] " + spoolFile, ioe);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Move the spooled entries back into the queue.  On startup, they
+     * are read from the spool file.
+     */
+    private synchronized void loadSpool() {
+        if (spooled.isEmpty()) {
+            if (!spoolFile.exists()) return;
+            try {
+                for (String line : Files.readAllLines(spoolFile.toPath(), StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) continue;
+                    final SpoolLine spoolLine = Json.deserialize(line, SpoolLine.class);
+                    if (spoolLine == null || spoolLine.row == null) continue;
+                    spooled.add(new Entry(spoolLine.row, null, spoolLine.column));
+                }
+            } catch (IOException ioe) {
+                plugin().getLogger().log(Level.SEVERE, "[SQLGameQueue] " + spoolFile, ioe);
+                return;
+            }
+        }
+        try {
+            Files.deleteIfExists(spoolFile.toPath());
+        } catch (IOException ioe) {
+            plugin().getLogger().log(Level.SEVERE, "[SQLGameQueue] " + spoolFile, ioe);
+            return;
+        }
+        if (spooled.isEmpty()) return;
+        plugin().getLogger().info("[SQLGameQueue] Loaded " + spooled.size() + " entries from " + spoolFile);
+        synchronized (queue) {
+            queue.addAll(spooled);
+        }
+        spooled.clear();
+    }
+
+    /**
+     * A row to insert, or the column of a row to update.
+     */
+    private record Entry(SQLChessGame row, Consumer<SQLChessGame> callback, String column) { }
+
+    /**
+     * One line of the spool file.  The column is null for an insert.
+     */
+    private static final class SpoolLine {
+        private SQLChessGame row;
+        private String column;
+
+        SpoolLine() { }
+
+        SpoolLine(final SQLChessGame row, final String column) {
+            this.row = row;
+            this.column = column;
+        }
+    }
+}
@@ -15,6 +15,13 @@ import org.joml.Vector3f;
 import static com.cavetale.mytems.util.Entities.setTransient;
 
 public abstract class BillboardChessPieceSet implements ChessPieceSet {
+    /**
+     * The ticks a piece takes to slide to its new square.  The client
+     * interpolates every teleport of the display, so the server sends
+     * one update per move and does no work while the piece moves.
+     */
+    public static final int MOVE_TICKS = 8;
+
     @Override
     public final boolean canSupport(WorldChessBoard board) {
         return board.getFacingAxis() == Axis.Y;
@@ -24,6 +31,7 @@ public abstract class BillboardChessPieceSet implements ChessPieceSet {
         final var itemDisplay = location.getWorld().spawn(location, ItemDisplay.class, e -> {
                 e.setPersistent(false);
                 setTransient(e);
+                e.setTeleportDuration(MOVE_TICKS);
                 e.setItemStack(piece.getMytems().createIcon());
                 final float sy = piece.type == ChessPieceType.KING || piece.type == ChessPieceType.QUEEN
                     ? 1f
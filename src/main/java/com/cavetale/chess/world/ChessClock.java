@@ -0,0 +1,49 @@
+package com.cavetale.chess.world;
+
+/**
+ * Monotonic time for the chess clocks.  Time is measured with
+ * System.nanoTime(), which does not jump along with the wall clock.
+ *
+ * Server lag is measured as well: whatever a tick takes beyond its
+ * regular 50 milliseconds counts as lag, and moves are credited with
+ * the lag which occurred while they were being played.  Otherwise a
+ * lag spike would run down the clock of whoever is to move.
+ */
+public final class ChessClock {
+    public static final long TICK_NANOS = 50_000_000L;
+    /** The most lag a single tick is credited with. */
+    public static final long MAX_TICK_LAG_NANOS = 5_000_000_000L;
+    private static long lastTick;
+    private static long totalLag;
+
+    private ChessClock() { }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Called by Worlds at the start of every tick.
+     */
+    protected static void tick() {
+        final long now = now();
+        totalLag += getPendingLag(now);
+        lastTick = now;
+    }
+
+    /**
+     * The lag since this clock started, including the current tick
+     * if it is already overdue.  Only differences of this value are
+     * meaningful.
+     */
+    public static long getTotalLag() {
+        return totalLag + getPendingLag(now());
+    }
+
+    private static long getPendingLag(long now) {
+        if (lastTick == 0L) return 0L;
+        final long lag = now - lastTick - TICK_NANOS;
+        if (lag <= 0L) return 0L;
+        return Math.min(lag, MAX_TICK_LAG_NANOS);
+    }
+}
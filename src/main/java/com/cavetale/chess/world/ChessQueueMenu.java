@@ -67,15 +67,19 @@ public final class ChessQueueMenu {
                 open();
             });
         // Time Selection
+        int fastSlot = 45;
         for (TimeBank it : TimeBank.values()) {
-            final int slot = 12 + it.ordinal();
+            final int slot = it.isFast() ? fastSlot++ : 12 + it.ordinal();
             if (timeBank == it) {
                 builder.highlightSlot(slot, HIGHLIGHT_TIME);
             }
             final List<Component> tooltip = List.of(text("Timer " + it.toString(), HIGHLIGHT_TIME),
-                                                    textOfChildren(text("Initial ", GRAY), text(it.getTimeBankMinutes() + " minutes", WHITE)),
-                                                    textOfChildren(text("Increment ", GRAY), text(it.getIncrementSeconds() + " seconds", WHITE)));
-            gui.setItem(slot, it.getMytems().createIcon(tooltip), click -> {
+                                                    textOfChildren(text("Initial ", GRAY), text(it.getTimeBankMinutes() + (it.getTimeBankMinutes() == 1 ? " minute" : " minutes"), WHITE)),
+                                                    textOfChildren(text("Increment ", GRAY), text(it.getIncrementSeconds() + (it.getIncrementSeconds() == 1 ? " second" : " seconds"), WHITE)));
+            final ItemStack icon = it.getMytems() != null
+                ? it.getMytems().createIcon(tooltip)
+                : tooltip(new ItemStack(Material.CLOCK, it.getTimeBankMinutes()), tooltip);
+            gui.setItem(slot, icon, click -> {
                     if (!click.isLeftClick()) return;
                     player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, SoundCategory.MASTER, 1f, 1f);
                     timeBank = it;
@@ -104,6 +108,17 @@ public final class ChessQueueMenu {
                 chessEngineType = ChessEngineType.DUMMY;
                 open();
             });
+        // AlphaBeta AI
+        final int alphaBetaIndex = 17;
+        if (chessEngineType == ChessEngineType.ALPHA_BETA) {
+            builder.highlightSlot(alphaBetaIndex, HIGHLIGHT_OPPONENT);
+        }
+        gui.setItem(alphaBetaIndex, tooltip(new ItemStack(Material.OBSERVER), List.of(text("Play against strong Computer", GRAY))), click -> {
+                if (!click.isLeftClick()) return;
+                player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, SoundCategory.MASTER, 1f, 1f);
+                chessEngineType = ChessEngineType.ALPHA_BETA;
+                open();
+            });
         // Stockfish AI
         int opponentIndex = 19;
         for (int level = 0; level <= 20; level += 1) {
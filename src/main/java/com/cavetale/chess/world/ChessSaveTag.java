@@ -2,6 +2,7 @@ package com.cavetale.chess.world;
 
 import com.cavetale.chess.ai.ChessEngineType;
 import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessGameSnapshot;
 import com.cavetale.core.event.minigame.MinigameMatchCompleteEvent;
 import com.cavetale.core.event.minigame.MinigameMatchType;
 import com.cavetale.core.font.Unicode;
@@ -19,6 +20,7 @@ public final class ChessSaveTag implements Serializable {
     private ChessState state = ChessState.WAITING;
     private long stateStarted;
     private String pgnString;
+    private ChessGameSnapshot snapshot;
     private ChessPlayer white = new ChessPlayer();
     private ChessPlayer black = new ChessPlayer();
     private List<UUID> queue = new ArrayList<>();
@@ -92,6 +94,9 @@ public final class ChessSaveTag implements Serializable {
         private long timeIncrement;
         private boolean playing;
         private long awaySince;
+        // Monotonic state of the running move, see ChessClock
+        private transient long moveStartedNanos;
+        private transient long moveStartedLag;
 
         public boolean isEmpty() {
             return chessEngineType == null && player == null;
@@ -154,6 +159,8 @@ public final class ChessSaveTag implements Serializable {
         public void startMove() {
             playing = true;
             moveStarted = System.currentTimeMillis();
+            moveStartedNanos = ChessClock.now();
+            moveStartedLag = ChessClock.getTotalLag();
         }
 
         public void stopMove() {
@@ -161,8 +168,17 @@ public final class ChessSaveTag implements Serializable {
             timeBank = Math.max(0, timeBank - getMoveMillis() + timeIncrement);
         }
 
+        /**
+         * The time spent on the current move, minus server lag.  The
+         * wall clock is only used to resume a move after a restart.
+         */
         public long getMoveMillis() {
-            return System.currentTimeMillis() - moveStarted;
+            if (moveStartedNanos == 0L) {
+                moveStartedNanos = ChessClock.now() - Math.max(0L, System.currentTimeMillis() - moveStarted) * 1_000_000L;
+                moveStartedLag = ChessClock.getTotalLag();
+            }
+            final long lag = ChessClock.getTotalLag() - moveStartedLag;
+            return Math.max(0L, (ChessClock.now() - moveStartedNanos - lag) / 1_000_000L);
         }
 
         public int getMoveSeconds() {
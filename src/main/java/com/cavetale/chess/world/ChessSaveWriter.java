@@ -0,0 +1,121 @@
+package com.cavetale.chess.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import static com.cavetale.chess.ChessPlugin.plugin;
+
+/**
+ * Write board save files off the main thread.  Boards serialize
+ * their state on the main thread and hand the result over to this
+ * writer.  Repeated saves of the same file are coalesced, so only
+ * the latest snapshot is ever written.  Each file is written to a
+ * temporary file first and then moved into place.
+ */
+public final class ChessSaveWriter {
+    /**
+     * Snapshots waiting to be written, by file.  An entry remains
+     * here until it was written, so that getPending() never misses a
+     * snapshot which is in flight.
+     */
+    private final Map<File, String> pending = new LinkedHashMap<>();
+    private ExecutorService executor;
+
+    public void enable() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "Chess-SaveWriter");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Stop the background thread and write whatever is still
+     * pending in the calling thread.
+     */
+    public void disable() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30L, TimeUnit.SECONDS)) {
+                    plugin().getLogger().warning("[ChessSaveWriter] Timed out waiting for writer thread");
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        drain();
+    }
+
+    /**
+     * Schedule a file to be written.  A previous snapshot of the same
+     * file which was not yet written will be replaced.
+     */
+    public void save(File file, String content) {
+        final boolean schedule;
+        synchronized (pending) {
+            schedule = pending.isEmpty();
+            pending.put(file, content);
+        }
+        if (executor == null) {
+            drain();
+        } else if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Get the latest snapshot of a file which has not yet been
+     * written to disk.
+     * @return the content or null if nothing is pending
+     */
+    public String getPending(File file) {
+        synchronized (pending) {
+            return pending.get(file);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final File file;
+            final String content;
+            synchronized (pending) {
+                if (pending.isEmpty()) return;
+                final var entry = pending.entrySet().iterator().next();
+                file = entry.getKey();
+                content = entry.getValue();
+            }
+            write(file, content);
+            synchronized (pending) {
+                // Only remove if no newer snapshot arrived meanwhile
+                if (pending.get(file) == content) {
+                    pending.remove(file);
+                }
+            }
+        }
+    }
+
+    private static void write(File file, String content) {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.writeString(tmp.toPath(), content, StandardCharsets.UTF_8);
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ioe) {
+            plugin().getLogger().log(Level.SEVERE, "[ChessSaveWriter] " + file, ioe);
+        }
+    }
+}
@@ -15,6 +15,14 @@ public interface EntityChessPiece extends WorldChessPiece {
         }
     }
 
+    @Override
+    default boolean isValid() {
+        for (var entity : getEntities()) {
+            if (!entity.isValid()) return false;
+        }
+        return true;
+    }
+
     static void markAsChessPiece(Entity entity) {
         entity.getPersistentDataContainer().set(namespacedKey("ChessPiece"), PersistentDataType.BOOLEAN, true);
     }
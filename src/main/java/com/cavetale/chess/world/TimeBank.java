@@ -3,11 +3,18 @@ package com.cavetale.chess.world;
 import com.cavetale.mytems.Mytems;
 import lombok.Getter;
 
+/**
+ * The time controls to choose from.  The fast presets have no
+ * hourglass icon.
+ */
 @Getter
 public enum TimeBank {
     TEN(Mytems.COLORFALL_HOURGLASS, 10, 5),
     FIFTEEN(Mytems.MOONLIGHT_HOURGLASS, 15, 10),
-    THIRTY(Mytems.ATMOSPHERE_HOURGLASS, 30, 15);
+    THIRTY(Mytems.ATMOSPHERE_HOURGLASS, 30, 15),
+    BULLET(null, 1, 1),
+    BLITZ(null, 3, 2),
+    BLITZ_FIVE(null, 5, 3);
 
     private final Mytems mytems;
     private final int timeBankMinutes;
@@ -23,6 +30,10 @@ public enum TimeBank {
         this.increment = (long) incrementSeconds * 1000L;
     }
 
+    public boolean isFast() {
+        return timeBankMinutes < 10;
+    }
+
     @Override
     public String toString() {
         return incrementSeconds == 0
@@ -12,7 +12,7 @@ import com.cavetale.chess.board.ChessPieceType;
 import com.cavetale.chess.board.ChessSquare;
 import com.cavetale.chess.board.ChessTurn;
 import com.cavetale.chess.board.ChessTurnState;
-import com.cavetale.chess.net.LichessImport;
+import com.cavetale.chess.spectate.ChessSnapshot;
 import com.cavetale.chess.sql.SQLChessGame;
 import com.cavetale.core.event.hud.PlayerHudEvent;
 import com.cavetale.core.event.hud.PlayerHudPriority;
@@ -58,6 +58,7 @@ import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.BlockDisplay;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Transformation;
 import org.bukkit.util.Vector;
 import org.joml.AxisAngle4f;
@@ -112,10 +113,19 @@ public final class WorldChessBoard {
     // Move selection
     private ChessSquare moveFrom;
     private final List<ChessSquare> legalTargets = new ArrayList<>();
-    private final List<BlockDisplay> highlights = new ArrayList<>();
+    private final List<BlockDisplay> highlights = new ArrayList<>(); // Pool
+    private int highlightCount;
+    private UUID highlightViewer;
+    // Players in the perimeter
+    private final Set<UUID> viewers = new HashSet<>();
     private int ticks = 0;
+    private BukkitTask flagTask;
     private int lastInputTicks = 0;
     private boolean cpuRequestScheduled = false;
+    /** The turn count when the opening book was last asked. */
+    private int bookCheckedTurns = -1;
+    /** The sequence number of the last spectator snapshot. */
+    private long snapshotSequence;
 
     public WorldChessBoard(final World world, final String name, final Cuboid boardArea, final Cuboid a1) {
         this.world = world;
@@ -256,13 +266,49 @@ public final class WorldChessBoard {
                                   + " c:" + chunks);
     }
 
+    /**
+     * Get the players in the perimeter.  They are tracked by the
+     * movement events in Worlds, so this does not scan the world.
+     */
     public List<Player> getPlayersInPerimeter() {
-        final List<Player> list = new ArrayList<>();
+        final List<Player> list = new ArrayList<>(viewers.size());
+        for (UUID uuid : viewers) {
+            final Player player = Bukkit.getPlayer(uuid);
+            if (player != null) list.add(player);
+        }
+        return list;
+    }
+
+    public boolean hasViewers() {
+        return !viewers.isEmpty();
+    }
+
+    /**
+     * Find all players in the perimeter from scratch, when waking
+     * up.
+     */
+    private void scanViewers() {
+        viewers.clear();
         for (Player player : world.getPlayers()) {
             if (!perimeter.contains(player.getLocation())) continue;
-            list.add(player);
+            viewers.add(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Update one player after they moved.
+     * @param location the new location, or null if the player left
+     */
+    protected void updateViewer(Player player, Location location) {
+        final boolean inside = location != null
+            && world.equals(location.getWorld())
+            && perimeter.contains(location);
+        if (inside) {
+            viewers.add(player.getUniqueId());
+        } else {
+            if (!viewers.remove(player.getUniqueId())) return;
+            if (player.getUniqueId().equals(highlightViewer)) clearLegalMoves();
         }
-        return list;
     }
 
     public void announce(Component text) {
@@ -272,27 +318,49 @@ public final class WorldChessBoard {
     }
 
     public void load() {
-        saveTag = Json.load(getSaveFile(), ChessSaveTag.class, ChessSaveTag::new);
+        final File file = getSaveFile();
+        // A save of this board may still be waiting to be written
+        final String pending = Worlds.worlds().getSaveWriter().getPending(file);
+        saveTag = pending != null
+            ? Json.deserialize(pending, ChessSaveTag.class)
+            : Json.load(file, ChessSaveTag.class, ChessSaveTag::new);
+        if (saveTag == null) saveTag = new ChessSaveTag();
         game = new ChessGame();
-        if (saveTag.getPgnString() != null) {
+        boolean loaded = false;
+        if (saveTag.getSnapshot() != null) {
+            try {
+                game.loadSnapshot(saveTag.getSnapshot(), saveTag.getPgnString());
+                loaded = true;
+            } catch (IllegalArgumentException iae) {
+                plugin().getLogger().log(Level.WARNING, "load snapshot " + getBoardId(), iae);
+            }
+        }
+        if (!loaded && saveTag.getPgnString() != null) {
             try {
                 game.loadPgnString(saveTag.getPgnString());
+                loaded = true;
             } catch (IllegalArgumentException iae) {
                 plugin().getLogger().log(Level.WARNING, "load " + saveTag.getPgnString(), iae);
-                game.initialize();
             }
-        } else {
+        }
+        if (!loaded) {
             game.initialize();
         }
         pieceSet = saveTag.getPieceSetType() != null
             ? saveTag.getPieceSetType().getChessPieceSet()
             : null;
+        publishSnapshot();
     }
 
+    /**
+     * Snapshot the current state and hand it to the save writer,
+     * which writes it to disk asynchronously.
+     */
     public void save() {
         if (saveTag == null) return;
         saveTag.setPgnString(game.toPgnString());
-        Json.save(getSaveFile(), saveTag, true);
+        saveTag.setSnapshot(game.toSnapshot());
+        Worlds.worlds().getSaveWriter().save(getSaveFile(), Json.prettyPrint(saveTag));
     }
 
     public Location getCenterLocation(ChessSquare square) {
@@ -337,18 +405,47 @@ public final class WorldChessBoard {
         pieces.clear();
     }
 
+    /**
+     * Make the piece entities match the current position.  Pieces
+     * which are already in place are kept, pieces which are in the
+     * wrong place are moved to a free square which needs the same
+     * piece, and only the difference is spawned or removed.
+     */
     public void spawnAllPieces() {
         if (!awake) return;
         final ChessBoard board = game.getCurrentBoard();
+        final Map<ChessPiece, List<WorldChessPiece>> spare = new EnumMap<>(ChessPiece.class);
+        final List<ChessSquare> missing = new ArrayList<>();
         for (ChessSquare square : ChessSquare.values()) {
-            final WorldChessPiece old = pieces.remove(square);
-            if (old != null) old.remove();
             final ChessPiece piece = board.getPieceAt(square);
-            if (piece == null) continue;
-            final WorldChessPiece placed = getPieceSet().place(this, square, piece);
-            if (placed == null) continue;
+            final WorldChessPiece old = pieces.get(square);
+            if (old != null && old.getChessPiece() == piece && old.isValid()) continue;
+            if (old != null) {
+                pieces.remove(square);
+                if (old.isValid()) {
+                    spare.computeIfAbsent(old.getChessPiece(), p -> new ArrayList<>()).add(old);
+                } else {
+                    old.remove();
+                }
+            }
+            if (piece != null) missing.add(square);
+        }
+        for (ChessSquare square : missing) {
+            final ChessPiece piece = board.getPieceAt(square);
+            final List<WorldChessPiece> list = spare.get(piece);
+            final WorldChessPiece placed;
+            if (list != null && !list.isEmpty()) {
+                placed = list.remove(list.size() - 1);
+                placed.move(square);
+            } else {
+                placed = getPieceSet().place(this, square, piece);
+                if (placed == null) continue;
+            }
             pieces.put(square, placed);
         }
+        for (List<WorldChessPiece> list : spare.values()) {
+            for (WorldChessPiece it : list) it.remove();
+        }
     }
 
     /**
@@ -360,7 +457,9 @@ public final class WorldChessBoard {
         if (!allChunksAreLoaded()) return false;
         awake = true;
         load();
+        scanViewers();
         spawnAllPieces();
+        scheduleFlag();
         plugin().getLogger().info("[WorldChessBoard] " + getBoardId() + " woke up");
         return true;
     }
@@ -375,7 +474,9 @@ public final class WorldChessBoard {
         awake = false;
         save();
         clearPieces();
-        clearLegalMoves();
+        removeHighlights();
+        viewers.clear();
+        cancelFlag();
         plugin().getLogger().info("[WorldChessBoard] " + getBoardId() + " fell asleep");
         return true;
     }
@@ -417,8 +518,11 @@ public final class WorldChessBoard {
             }
             break;
         case GAME:
-            updateBossBar();
-            showPreviousMove();
+            // Visuals are skipped while nobody is watching
+            if (hasViewers()) {
+                updateBossBar();
+                showPreviousMove();
+            }
             for (ChessColor color : ChessColor.values()) {
                 final ChessSaveTag.ChessPlayer player = saveTag.getPlayer(color);
                 if (!player.isPlayer()) continue;
@@ -440,18 +544,57 @@ public final class WorldChessBoard {
             }
             final ChessColor color = game.getCurrentBoard().getActiveColor();
             final ChessSaveTag.ChessPlayer player = saveTag.getPlayer(color);
-            if (player.getTimeBankMillis() <= 0L) {
-                game.getCurrentTurn().setTimeout();
-                onGameOver();
-                return;
-            } else if (player.isCpu()) {
+            if (player.isCpu()) {
+                if (!cpuRequestScheduled && plugin().getOpeningBook() != null
+                    && bookCheckedTurns != game.getMoveCount()) {
+                    // Book moves need no thinking, but still give
+                    // players a moment to see the previous move
+                    if (player.getMoveSeconds() < 1) return;
+                    bookCheckedTurns = game.getMoveCount();
+                    final ChessMove bookMove = plugin().getOpeningBook()
+                        .findMove(game.getCurrentBoard(), ThreadLocalRandom.current());
+                    if (bookMove != null) {
+                        move(bookMove);
+                        return;
+                    }
+                }
+                if (!cpuRequestScheduled) {
+                    final ChessMove endgameMove = plugin().getTablebase().probe(game.getCurrentBoard());
+                    if (endgameMove != null) {
+                        if (player.getMoveSeconds() < 1) return;
+                        if (move(endgameMove)) return;
+                    }
+                }
                 switch (player.getChessEngineType()) {
                 case DUMMY: {
                     if (player.getMoveSeconds() < 5) return;
-                    final ChessMove move = new DummyAI().getBestMove(game);
+                    final DummyAI ai = new DummyAI();
+                    ai.setWeights(plugin().getDummyWeights());
+                    final ChessMove move = ai.getBestMove(game);
                     move(move);
                     break;
                 }
+                case ALPHA_BETA: {
+                    if (cpuRequestScheduled) return;
+                    cpuRequestScheduled = true;
+                    final String fenString = game.getCurrentBoard().toFenString();
+                    plugin().getSearch().searchAsync(game.getCurrentBoard(), game.getRepetitionHashes(),
+                                                     plugin().getSearchMillis(), 64)
+                        .whenComplete((move, throwable) -> {
+                                if (throwable != null) {
+                                    plugin().getLogger().log(Level.SEVERE, getBoardId() + " AlphaBeta", throwable);
+                                }
+                                if (!plugin().isEnabled()) return;
+                                Bukkit.getScheduler().runTask(plugin(), () -> {
+                                        if (!game.getCurrentBoard().toFenString().equals(fenString)) return;
+                                        if (move == null || !move(move)) {
+                                            game.getCurrentTurn().resign(color);
+                                            onGameOver();
+                                        }
+                                    });
+                            });
+                    break;
+                }
                 case STOCKFISH: {
                     if (cpuRequestScheduled) return;
                     cpuRequestScheduled = true;
@@ -532,9 +675,9 @@ public final class WorldChessBoard {
         game = new ChessGame();
         game.initialize();
         saveTag.setState(ChessSaveTag.ChessState.WAITING);
-        clearPieces();
         clearLegalMoves();
         spawnAllPieces();
+        publishSnapshot();
     }
 
     protected void onPlayerHud(PlayerHudEvent event) {
@@ -612,7 +755,6 @@ public final class WorldChessBoard {
             clearLegalMoves();
             for (ChessMove move : game.getCurrentTurn().getLegalMoves().keySet()) {
                 if (move.from() != clickedSquare) continue;
-                legalTargets.add(move.to());
                 if (!legalTargets.contains(move.to())) {
                     legalTargets.add(move.to());
                 }
@@ -668,51 +810,82 @@ public final class WorldChessBoard {
     public static final AxisAngle4f AXISANGLE4F_ZERO = new AxisAngle4f(0f, 0f, 0f, 0f);
     public static final AxisAngle4f AXISANGLE4F_FLIP = new org.joml.AxisAngle4f((float) Math.PI, 0f, 1f, 0f);
 
+    /**
+     * Highlight the legal targets for one player.  Each target square
+     * gets one display entity, scaled to the size of the square.  The
+     * entities are kept in a pool and reused by later selections.
+     */
     private void fillLegalMoves(Player player) {
         final Vector3f translation = new Vector3f((float) Math.abs(faceBoardX.getModX() + faceBoardY.getModX()) * -0.5f,
                                                   (float) Math.abs(faceBoardX.getModY() + faceBoardY.getModY()) * -0.5f,
                                                   (float) Math.abs(faceBoardX.getModZ() + faceBoardY.getModZ()) * -0.5f);
         final AxisAngle4f leftRotation = AXISANGLE4F_ZERO;
         final AxisAngle4f rightRotation = AXISANGLE4F_ZERO;
-        final Vector3f scale = new Vector3f(facingAxis == Axis.X ? 0f : 1f,
-                                            facingAxis == Axis.Y ? 0f : 1f,
-                                            facingAxis == Axis.Z ? 0f : 1f);
+        final Vector3f scale = new Vector3f(facingAxis == Axis.X ? 0f : (float) a1.getSizeX(),
+                                            facingAxis == Axis.Y ? 0f : (float) a1.getSizeY(),
+                                            facingAxis == Axis.Z ? 0f : (float) a1.getSizeZ());
         final Transformation transformation = new Transformation(translation, leftRotation, scale, rightRotation);
         final BlockDisplay.Brightness brightness = new BlockDisplay.Brightness(15, 15);
+        final int up = lengthBoardOrtho - 1;
+        int index = 0;
         for (ChessSquare square : legalTargets) {
             final Cuboid cuboid = squares.get(square);
-            for (int dy = 0; dy < lengthBoardY; dy += 1) {
-                for (int dx = 0; dx < lengthBoardX; dx += 1) {
-                    final int up = lengthBoardOrtho - 1;
-                    final int x = cuboid.ax + Math.abs(dx * faceBoardX.getModX() + dy * faceBoardY.getModX() + up * faceBoardOrtho.getModX());
-                    final int y = cuboid.ay + Math.abs(dx * faceBoardX.getModY() + dy * faceBoardY.getModY() + up * faceBoardOrtho.getModY());
-                    final int z = cuboid.az + Math.abs(dx * faceBoardX.getModZ() + dy * faceBoardY.getModZ() + up * faceBoardOrtho.getModZ());
-                    final Block block = world.getBlockAt(x, y, z);
-                    final BlockData blockData = block.getBlockData();
-                    final Location location = block.getLocation()
-                        .add(0.5, 0.5, 0.5)
-                        .add(faceBoardOrtho.getDirection().multiply(0.5078125));
-                    boolean willTake = game.getCurrentBoard().getPieceAt(square) != null;
-                    final BlockDisplay display = world.spawn(location, BlockDisplay.class, e -> {
-                            e.setPersistent(false);
-                            setTransient(e);
-                            e.setBlock(blockData);
-                            e.setTransformation(transformation);
-                            e.setGlowing(true);
-                            e.setBrightness(brightness);
-                            e.setGlowColorOverride(willTake ? Color.RED : Color.WHITE);
-                            e.setVisibleByDefault(false);
-                        });
+            final int x = cuboid.ax + Math.abs(up * faceBoardOrtho.getModX());
+            final int y = cuboid.ay + Math.abs(up * faceBoardOrtho.getModY());
+            final int z = cuboid.az + Math.abs(up * faceBoardOrtho.getModZ());
+            final Block block = world.getBlockAt(x, y, z);
+            final BlockData blockData = block.getBlockData();
+            final Location location = block.getLocation()
+                .add(0.5, 0.5, 0.5)
+                .add(faceBoardOrtho.getDirection().multiply(0.5078125));
+            final Color color = game.getCurrentBoard().getPieceAt(square) != null ? Color.RED : Color.WHITE;
+            BlockDisplay display = index < highlights.size() ? highlights.get(index) : null;
+            if (display != null && display.isValid()) {
+                display.teleport(location);
+                display.setBlock(blockData);
+                display.setGlowColorOverride(color);
+            } else {
+                display = world.spawn(location, BlockDisplay.class, e -> {
+                        e.setPersistent(false);
+                        setTransient(e);
+                        e.setBlock(blockData);
+                        e.setTransformation(transformation);
+                        e.setGlowing(true);
+                        e.setBrightness(brightness);
+                        e.setGlowColorOverride(color);
+                        e.setVisibleByDefault(false);
+                    });
+                if (index < highlights.size()) {
+                    highlights.set(index, display);
+                } else {
                     highlights.add(display);
-                    player.showEntity(plugin(), display);
                 }
             }
+            player.showEntity(plugin(), display);
+            index += 1;
         }
+        highlightCount = index;
+        highlightViewer = player.getUniqueId();
     }
 
+    /**
+     * Hide the highlights but keep them in the pool.
+     */
     private void clearLegalMoves() {
         moveFrom = null;
         legalTargets.clear();
+        final Player viewer = highlightViewer != null ? Bukkit.getPlayer(highlightViewer) : null;
+        if (viewer != null) {
+            for (int i = 0; i < highlightCount; i += 1) {
+                viewer.hideEntity(plugin(), highlights.get(i));
+            }
+        }
+        highlightCount = 0;
+        highlightViewer = null;
+    }
+
+    private void removeHighlights() {
+        clearLegalMoves();
         for (BlockDisplay it : highlights) it.remove();
         highlights.clear();
     }
@@ -765,9 +938,10 @@ public final class WorldChessBoard {
         game.setWhiteName(saveTag.getPlayer(ChessColor.WHITE).getName());
         game.setBlackName(saveTag.getPlayer(ChessColor.BLACK).getName());
         saveTag.getPlayer(game.getCurrentBoard().getActiveColor()).startMove();
+        scheduleFlag();
         save();
-        clearPieces();
         spawnAllPieces();
+        publishSnapshot();
         final Player white = saveTag.getWhite().getPlayerEntity();
         if (white != null) {
             white.sendMessage(textOfChildren(Mytems.WHITE_QUEEN, text("You play as White", GRAY)));
@@ -803,9 +977,10 @@ public final class WorldChessBoard {
         game.setWhiteName(saveTag.getPlayer(ChessColor.WHITE).getName());
         game.setBlackName(saveTag.getPlayer(ChessColor.BLACK).getName());
         saveTag.getPlayer(game.getCurrentBoard().getActiveColor()).startMove();
+        scheduleFlag();
         save();
-        clearPieces();
         spawnAllPieces();
+        publishSnapshot();
         cpuRequestScheduled = false;
         player.sendMessage(textOfChildren(ChessPiece.of(color, ChessPieceType.QUEEN).getMytems(),
                                           text("You play as " + color.getHumanName(), (color == ChessColor.WHITE ? GRAY : DARK_GRAY))));
@@ -818,6 +993,11 @@ public final class WorldChessBoard {
         ChessPiece taken = board.getPieceAt(move.to());
         final ChessColor color = board.getActiveColor();
         final ChessSaveTag.ChessPlayer player = saveTag.getPlayer(color);
+        if (saveTag.getState() == ChessSaveTag.ChessState.GAME && player.isPlaying() && player.getTimeBankMillis() <= 0L) {
+            // The flag fell before the move arrived
+            checkFlag();
+            return false;
+        }
         final String moveText = game.getCurrentTurn().getMoveText(move);
         if (!game.move(move)) return false;
         // Update the board
@@ -872,12 +1052,41 @@ public final class WorldChessBoard {
             onGameOver();
         } else {
             saveTag.getPlayer(newBoard.getActiveColor()).startMove();
+            scheduleFlag();
         }
         drawOffered = null;
         cpuRequestScheduled = false;
+        publishSnapshot();
         return true;
     }
 
+    /**
+     * Hand the current position to the spectators, see
+     * ChessSpectators.  This is cheap no matter how many are
+     * watching.
+     */
+    private void publishSnapshot() {
+        final ChessSaveTag.ChessPlayer white = saveTag.getWhite();
+        final ChessSaveTag.ChessPlayer black = saveTag.getBlack();
+        final ChessTurn turn = game.getCurrentTurn();
+        final ChessColor active = turn.getBoard().getActiveColor();
+        final ChessColor clockColor = saveTag.getState() == ChessSaveTag.ChessState.GAME && saveTag.getPlayer(active).isPlaying()
+            ? active
+            : null;
+        snapshotSequence += 1;
+        plugin().getSpectators().getPublisher().publish(new ChessSnapshot(getBoardId(),
+                                                                          snapshotSequence,
+                                                                          turn.getBoard().toFenString(),
+                                                                          turn.getPreviousMove(),
+                                                                          turn.getState(),
+                                                                          white.getName(),
+                                                                          black.getName(),
+                                                                          white.getTimeBankMillis(),
+                                                                          black.getTimeBankMillis(),
+                                                                          clockColor,
+                                                                          System.currentTimeMillis()));
+    }
+
     private void updateBoard(ChessMove move, ChessColor color) {
         final WorldChessPiece takenPiece = pieces.remove(move.to());
         if (takenPiece != null) {
@@ -901,7 +1110,46 @@ public final class WorldChessBoard {
         }
     }
 
+    /**
+     * Schedule the flag of the player to move to fall when their time
+     * runs out, rather than checking it every tick.
+     */
+    private void scheduleFlag() {
+        cancelFlag();
+        if (!awake || saveTag.getState() != ChessSaveTag.ChessState.GAME) return;
+        final ChessSaveTag.ChessPlayer player = saveTag.getPlayer(game.getCurrentBoard().getActiveColor());
+        if (!player.isPlaying()) return;
+        final long remaining = player.getTimeBankMillis();
+        final long delay = Math.max(1L, (remaining + 49L) / 50L);
+        flagTask = Bukkit.getScheduler().runTaskLater(plugin(), this::checkFlag, delay);
+    }
+
+    private void cancelFlag() {
+        if (flagTask == null) return;
+        flagTask.cancel();
+        flagTask = null;
+    }
+
+    /**
+     * Time out the player to move if their time is up.  Otherwise,
+     * for example because they were credited with lag, check again
+     * later.
+     */
+    private void checkFlag() {
+        flagTask = null;
+        if (!awake || saveTag.getState() != ChessSaveTag.ChessState.GAME) return;
+        final ChessSaveTag.ChessPlayer player = saveTag.getPlayer(game.getCurrentBoard().getActiveColor());
+        if (!player.isPlaying()) return;
+        if (player.getTimeBankMillis() > 0L) {
+            scheduleFlag();
+            return;
+        }
+        game.getCurrentTurn().setTimeout();
+        onGameOver();
+    }
+
     private void onGameOver() {
+        cancelFlag();
         plugin().getLogger().info(getBoardId() + "\n" + game.toPgnString());
         final ChessTurn turn = game.getCurrentTurn();
         final ChessColor winner = turn.getWinner();
@@ -939,13 +1187,22 @@ public final class WorldChessBoard {
         default: break;
         }
         final SQLChessGame row = new SQLChessGame(this);
-        if (game.getTurns().size() > 5) {
-            new LichessImport(game, url -> {
+        if (plugin().getGameViewer().isEnabled()) {
+            plugin().getGameQueue().add(row, theRow -> {
+                    final String url = plugin().getGameViewer().getGameUrl(theRow.getId());
+                    announce(textOfChildren(text("Review the game here: ", WHITE),
+                                            text(url, BLUE, UNDERLINED))
+                             .hoverEvent(text(url, GRAY))
+                             .clickEvent(openUrl(url)));
+                });
+        } else if (game.getMoveCount() >= 5) {
+            // Queue right away so the game is saved even if the
+            // import never returns
+            plugin().getGameQueue().add(row);
+            plugin().getLichessImport().submit(game, url -> {
                     if (url != null) {
-                        row.setLichessUrl(url);
-                    }
-                    plugin().getDatabase().insertAsync(row, i -> plugin().getLogger().info("Game saved with id " + row.getId()));
-                    if (url == null) {
+                        plugin().getGameQueue().updateLichessUrl(row, url);
+                    } else {
                         url = game.toLichessAnalysisUrl();
                     }
                     announce(textOfChildren(text("Review the game here: ", WHITE),
@@ -953,9 +1210,9 @@ public final class WorldChessBoard {
                              .hoverEvent(text(url, GRAY))
                              .clickEvent(openUrl(url)));
                     plugin().getLogger().info(url);
-            }).async();
+            });
         } else {
-            plugin().getDatabase().insertAsync(row, i -> plugin().getLogger().info("Game saved with id " + row.getId()));
+            plugin().getGameQueue().add(row);
         }
         if (winner != null && saveTag.getPlayer(winner).isPlayer() && saveTag.getPlayer(winner.other()).isStockfish()) {
             final Player player = saveTag.getPlayer(winner).getPlayerEntity();
@@ -968,6 +1225,19 @@ public final class WorldChessBoard {
         }
         saveTag.setState(ChessSaveTag.ChessState.WAITING);
         cpuRequestScheduled = false;
+        publishSnapshot();
+    }
+
+    /**
+     * Format a clock as minutes and seconds, or as seconds and tenths
+     * in the last ten seconds.
+     */
+    public static String formatClock(long millis) {
+        if (millis < 10_000L) {
+            return String.format("%2d.%d", millis / 1000L, (millis / 100L) % 10L);
+        }
+        final long seconds = millis / 1000L;
+        return String.format("%2d:%02d", seconds / 60L, seconds % 60L);
     }
 
     private void updateBossBar() {
@@ -988,8 +1258,7 @@ public final class WorldChessBoard {
                 bossBarText.add(text(" | ", DARK_GRAY));
             }
             final ChessSaveTag.ChessPlayer player = saveTag.getPlayer(color);
-            final int seconds = Math.max(0, player.getTimeBankSeconds());
-            final int minutes = seconds / 60;
+            final long millis = Math.max(0L, player.getTimeBankMillis());
             final boolean playing = player.isPlaying();
             final TextColor textColor = player.getAwaySince() != 0L
                 ? DARK_RED
@@ -1001,9 +1270,7 @@ public final class WorldChessBoard {
                     bossBarText.add(Mytems.COLORFALL_HOURGLASS.getCurrentAnimationFrame());
                     progress = Math.max(0.0f, Math.min(1.0f, (float) player.getTimeBankMillis() / (float) saveTag.getTimeBank()));
                 }
-                bossBarText.add(text(String.format("%2d", minutes), textColor));
-                bossBarText.add(text(":", textColor));
-                bossBarText.add(text(String.format("%02d", seconds % 60), textColor));
+                bossBarText.add(text(formatClock(millis), textColor));
                 bossBarText.add(space());
                 bossBarText.add(text(player.getName(), textColor).decoration(BOLD, playing));
                 if (whiteScore > blackScore) {
@@ -1037,9 +1304,7 @@ public final class WorldChessBoard {
                 }
                 bossBarText.add(text(player.getName(), textColor).decoration(BOLD, playing));
                 bossBarText.add(space());
-                bossBarText.add(text(String.format("%2d", minutes), textColor));
-                bossBarText.add(text(":", textColor));
-                bossBarText.add(text(String.format("%02d", seconds % 60), textColor));
+                bossBarText.add(text(formatClock(millis), textColor));
                 if (playing) {
                     bossBarText.add(Mytems.COLORFALL_HOURGLASS.getCurrentAnimationFrame());
                     progress = Math.max(0.0f, Math.min(1.0f, (float) player.getTimeBankMillis() / (float) saveTag.getTimeBank()));
@@ -1057,6 +1322,7 @@ public final class WorldChessBoard {
     private void showPreviousMove() {
         final ChessMove move = game.getCurrentTurn().getPreviousMove();
         if (move == null) return;
+        final List<Player> players = getPlayersInPerimeter();
         final Vector up = faceBoardOrtho.getDirection().multiply(0.125);
         final Location from = getCenterLocation(move.from()).add(up);
         final Location to = getCenterLocation(move.to()).add(up);
@@ -1069,7 +1335,9 @@ public final class WorldChessBoard {
             final Location location = from.toVector().multiply(b)
                 .add(to.toVector().multiply(a))
                 .toLocation(world);
-            world.spawnParticle(Particle.WAX_ON, location, 1, 0.0, 0.0, 0.0, 0.0);
+            for (Player player : players) {
+                player.spawnParticle(Particle.WAX_ON, location, 1, 0.0, 0.0, 0.0, 0.0);
+            }
         }
     }
 
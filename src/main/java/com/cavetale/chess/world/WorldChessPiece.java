@@ -11,4 +11,11 @@ public interface WorldChessPiece {
     void move(ChessSquare square);
 
     void explode();
+
+    /**
+     * Check if this piece can still be moved, rather than replaced.
+     */
+    default boolean isValid() {
+        return true;
+    }
 }
@@ -7,6 +7,7 @@ import com.cavetale.core.event.hud.PlayerHudEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
+import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -23,6 +24,11 @@ import org.bukkit.event.hanging.HangingBreakByEntityEvent;
 import org.bukkit.event.hanging.HangingBreakEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.event.vehicle.VehicleEnterEvent;
 import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.event.world.WorldUnloadEvent;
@@ -37,8 +43,10 @@ public final class Worlds implements Listener {
     private final List<WorldChessBoard> boards = new ArrayList<>();
     private BukkitTask task;
     @Setter private boolean allowVehicleEnter = false;
+    @Getter private final ChessSaveWriter saveWriter = new ChessSaveWriter();
 
     public void enable() {
+        saveWriter.enable();
         task = Bukkit.getScheduler().runTaskTimer(plugin(), this::tick, 1L, 1L);
         Bukkit.getPluginManager().registerEvents(this, plugin());
         loadAll();
@@ -50,6 +58,7 @@ public final class Worlds implements Listener {
             task = null;
         }
         unloadAll();
+        saveWriter.disable();
     }
 
     public WorldChessBoard getBoard(World world, String name) {
@@ -90,6 +99,7 @@ public final class Worlds implements Listener {
             final var board = iter.next();
             if (world.equals(board.getWorld())) {
                 board.fallAsleep();
+                plugin().getSpectators().getPublisher().clear(board.getBoardId());
                 iter.remove();
             }
         }
@@ -160,6 +170,7 @@ public final class Worlds implements Listener {
     }
 
     private void tick() {
+        ChessClock.tick();
         for (var board : boards) {
             if (board.isAwake()) {
                 if (board.fallAsleepIfNecessary()) continue;
@@ -301,6 +312,50 @@ public final class Worlds implements Listener {
         }
     }
 
+    /**
+     * Keep the viewers of each board up to date.  Only moves to
+     * another block are considered.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    private void onPlayerMove(PlayerMoveEvent event) {
+        final Location from = event.getFrom();
+        final Location to = event.getTo();
+        if (from.getBlockX() == to.getBlockX()
+            && from.getBlockY() == to.getBlockY()
+            && from.getBlockZ() == to.getBlockZ()
+            && from.getWorld().equals(to.getWorld())) {
+            return;
+        }
+        updateViewer(event.getPlayer(), to);
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    private void onPlayerTeleport(PlayerTeleportEvent event) {
+        updateViewer(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onPlayerRespawn(PlayerRespawnEvent event) {
+        updateViewer(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler
+    private void onPlayerJoin(PlayerJoinEvent event) {
+        updateViewer(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler
+    private void onPlayerQuit(PlayerQuitEvent event) {
+        updateViewer(event.getPlayer(), null);
+    }
+
+    private void updateViewer(Player player, Location location) {
+        for (var board : boards) {
+            if (!board.isAwake()) continue;
+            board.updateViewer(player, location);
+        }
+    }
+
     @EventHandler(ignoreCancelled = true)
     private void onVehicleEnter(VehicleEnterEvent event) {
         if (allowVehicleEnter) return;
@@ -0,0 +1,37 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessTurnState;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessEndgameTablebaseTest {
+    @Test
+    public void test() throws IOException {
+        final File folder = Files.createTempDirectory("tablebase").toFile();
+        final ChessEndgameTablebase tablebase = new ChessEndgameTablebase();
+        tablebase.load(folder);
+        final ChessBoard mateInOne = new ChessBoard();
+        mateInOne.loadFenString("7k/8/6K1/8/8/8/8/R7 w - - 0 1");
+        Assert.assertEquals(ChessMove.fromString("a1a8"), tablebase.probe(mateInOne));
+        // Both sides play from the table until the end
+        for (String fen : new String[] {"8/8/8/3k4/8/8/8/KQ6 w - - 0 1", "8/8/8/4k3/8/8/8/R3K3 b - - 0 1", "r3k3/8/8/8/8/8/8/4K3 b - - 0 1"}) {
+            final ChessGame game = new ChessGame();
+            game.loadFenString(fen);
+            while (!game.getCurrentTurn().getState().isGameOver()) {
+                final ChessMove move = tablebase.probe(game.getCurrentBoard());
+                Assert.assertNotNull(fen, move);
+                Assert.assertTrue(fen, game.move(move));
+                Assert.assertTrue(fen, game.getTurns().size() < 70);
+            }
+            Assert.assertEquals(fen, ChessTurnState.CHECKMATE, game.getCurrentTurn().getState());
+        }
+        for (File file : folder.listFiles()) file.delete();
+        folder.delete();
+    }
+}
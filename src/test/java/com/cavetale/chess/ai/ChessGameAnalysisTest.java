@@ -0,0 +1,53 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessColor;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessGameAnalysisTest {
+    @Test
+    public void testWinPercent() {
+        Assert.assertEquals(50.0, ChessGameAnalysis.getWinPercent(0), 0.001);
+        Assert.assertEquals(59.103, ChessGameAnalysis.getWinPercent(100), 0.001);
+        Assert.assertEquals(100.0 - 59.103, ChessGameAnalysis.getWinPercent(-100), 0.001);
+    }
+
+    /**
+     * White keeps the balance, then loses 50 centipawns.  Black
+     * blunders 300 centipawns, then gives away 150 more for an
+     * inaccuracy.
+     */
+    @Test
+    public void testMoves() {
+        final ChessGameAnalysis analysis = ChessGameAnalysis.ofEvals(ChessColor.WHITE, new int[] {0, 0, 300, 250, 400});
+        final ChessGameAnalysis.Side white = analysis.getWhite();
+        Assert.assertEquals(2, white.getMoves());
+        Assert.assertEquals(50, white.getTotalLoss());
+        Assert.assertEquals(25, white.getAverageLoss());
+        Assert.assertEquals(92.521, white.getAccuracy(), 0.001);
+        Assert.assertEquals(List.of(), white.getInaccuracies());
+        Assert.assertEquals(List.of(), white.getMistakes());
+        Assert.assertEquals(List.of(), white.getBlunders());
+        final ChessGameAnalysis.Side black = analysis.getBlack();
+        Assert.assertEquals(2, black.getMoves());
+        Assert.assertEquals(450, black.getTotalLoss());
+        Assert.assertEquals(225, black.getAverageLoss());
+        Assert.assertEquals(47.734, black.getAccuracy(), 0.001);
+        Assert.assertEquals(List.of(3), black.getInaccuracies());
+        Assert.assertEquals(List.of(), black.getMistakes());
+        Assert.assertEquals(List.of(1), black.getBlunders());
+    }
+
+    /**
+     * A move which improves the position costs nothing.
+     */
+    @Test
+    public void testNoLoss() {
+        final ChessGameAnalysis analysis = ChessGameAnalysis.ofEvals(ChessColor.BLACK, new int[] {0, -200});
+        Assert.assertEquals(1, analysis.getBlack().getMoves());
+        Assert.assertEquals(0, analysis.getBlack().getTotalLoss());
+        Assert.assertEquals(100.0, analysis.getBlack().getAccuracy(), 0.001);
+        Assert.assertEquals(0, analysis.getWhite().getMoves());
+    }
+}
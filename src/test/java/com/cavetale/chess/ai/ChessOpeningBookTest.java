@@ -0,0 +1,104 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessSquare;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessOpeningBookTest {
+    @Test
+    public void testCastlingMove() {
+        final ChessBoard board = new ChessBoard();
+        board.loadFenString("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        final ChessMove castle = new ChessMove(ChessSquare.E1, ChessSquare.G1);
+        final int encoded = ChessOpeningBook.encodeMove(board, castle);
+        Assert.assertEquals(ChessSquare.H1.ordinal(), encoded & 63);
+        Assert.assertEquals(castle, ChessOpeningBook.decodeMove(board, encoded));
+    }
+
+    /**
+     * Check getKey() against the published Polyglot keys of the
+     * moves 1. e4 d5 2. e5 f5.  Only the random numbers which these
+     * moves touch are filled in, so the start position key itself
+     * cannot be checked, but the key difference of each move can.
+     */
+    @Test
+    public void testPolyglotKeys() {
+        final long[] random64 = new long[ChessOpeningBook.RANDOM_COUNT];
+        random64[35] = 0x03488B95B0F1850FL; // black pawn d5
+        random64[37] = 0x09D1BC9A3DD90A94L; // black pawn f5
+        random64[51] = 0x7EF48F2B83024E20L; // black pawn d7
+        random64[53] = 0x6568FCA92C76A243L; // black pawn f7
+        random64[76] = 0xBB6E2924F03912EAL; // white pawn e2
+        random64[92] = 0x87BF02C6B49E2AE9L; // white pawn e4
+        random64[100] = 0x1E1032911FA78984L; // white pawn e5
+        random64[777] = 0xD0E4427A5514FB72L; // en passant file f
+        random64[780] = 0xF8D626AAAF278509L; // white to move
+        final String[] fens = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+            "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2",
+            "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+        };
+        final long[] polyglotKeys = {
+            0x463B96181691FC9CL,
+            0x823C9B50FD114196L,
+            0x0756B94461C50FB0L,
+            0x662FAFB965DB29D4L,
+            0x22A48B5A8E47FF78L,
+        };
+        for (int i = 1; i < fens.length; i += 1) {
+            final ChessBoard before = new ChessBoard();
+            before.loadFenString(fens[i - 1]);
+            final ChessBoard after = new ChessBoard();
+            after.loadFenString(fens[i]);
+            Assert.assertEquals(fens[i],
+                                Long.toHexString(polyglotKeys[i - 1] ^ polyglotKeys[i]),
+                                Long.toHexString(ChessOpeningBook.getKey(before, random64)
+                                                 ^ ChessOpeningBook.getKey(after, random64)));
+        }
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        final long[] random64 = ChessOpeningBook.defaultRandom64();
+        final ChessBoard start = new ChessBoard();
+        start.loadStartingPosition();
+        final ChessBoard other = new ChessBoard();
+        other.loadFenString("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        final long startKey = ChessOpeningBook.getKey(start, random64);
+        final long otherKey = ChessOpeningBook.getKey(other, random64);
+        Assert.assertNotEquals(startKey, otherKey);
+        final File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        final ChessMove e4 = new ChessMove(ChessSquare.E2, ChessSquare.E4);
+        final ChessMove e5 = new ChessMove(ChessSquare.E7, ChessSquare.E5);
+        final long[] keys = {startKey, otherKey};
+        final ChessMove[] moves = {e4, e5};
+        final ChessBoard[] boards = {start, other};
+        final int first = Long.compareUnsigned(startKey, otherKey) < 0 ? 0 : 1;
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            for (int i : new int[] {first, 1 - first}) {
+                out.writeLong(keys[i]);
+                out.writeShort(ChessOpeningBook.encodeMove(boards[i], moves[i]));
+                out.writeShort(1);
+                out.writeInt(0);
+            }
+        }
+        try (ChessOpeningBook book = ChessOpeningBook.open(file, random64)) {
+            Assert.assertEquals(2, book.getEntryCount());
+            Assert.assertEquals(e4, book.findMove(start, new Random()));
+            Assert.assertEquals(e5, book.findMove(other, new Random()));
+            final ChessBoard empty = new ChessBoard();
+            empty.loadFenString("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+            Assert.assertNull(book.findMove(empty, new Random()));
+        }
+    }
+}
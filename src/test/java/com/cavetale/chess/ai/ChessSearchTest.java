@@ -0,0 +1,49 @@
+package com.cavetale.chess.ai;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessMove;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessSearchTest {
+    @Test
+    public void test() {
+        final ChessSearch search = new ChessSearch(4, 16);
+        try {
+            // Back rank mate
+            final ChessBoard mate = new ChessBoard();
+            mate.loadFenString("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+            Assert.assertEquals(ChessMove.fromString("a1a8"), search.search(mate, 10_000L, 3));
+            // Win the hanging queen
+            final ChessBoard queen = new ChessBoard();
+            queen.loadFenString("rnb1kbnr/pppp1ppp/8/4p3/4P2q/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+            Assert.assertEquals(ChessMove.fromString("f3h4"), search.search(queen, 10_000L, 4));
+            // Knight fork of king and rook, which wins the rook two
+            // moves later
+            final ChessBoard fork = new ChessBoard();
+            fork.loadFenString("r3k3/6pp/8/3N4/8/8/PP6/4K3 w - - 0 1");
+            Assert.assertEquals(ChessMove.fromString("d5c7"), search.search(fork, 10_000L, 4));
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void testRepetition() {
+        final ChessSearch search = new ChessSearch(1, 16);
+        try {
+            // Black is lost, but Kh8 repeats the position before
+            final ChessBoard lost = new ChessBoard();
+            lost.loadFenString("6k1/8/8/8/8/8/8/3Q2K1 b - - 10 40");
+            final ChessBoard repeated = new ChessBoard();
+            repeated.loadFenString("7k/8/8/8/8/8/8/3Q2K1 w - - 11 41");
+            Assert.assertTrue(search.analyze(lost, 10_000L, 3).score() < -500);
+            final long[] history = {repeated.getRepetitionHash(), lost.getRepetitionHash()};
+            final ChessSearch.Result result = search.analyze(lost, history, 10_000L, 3);
+            Assert.assertEquals(ChessMove.fromString("g8h8"), result.move());
+            Assert.assertEquals(0, result.score());
+        } finally {
+            search.shutdown();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.cavetale.chess.board;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessGameTest {
+    static final String PGN = "[Event \"Test\"]\n"
+        + "[Site \"cavetale.com\"]\n"
+        + "[Date \"2024.03.01\"]\n"
+        + "[Round \"-\"]\n"
+        + "[White \"Alice\"]\n"
+        + "[Black \"Bob\"]\n"
+        + "[Result \"*\"]\n"
+        + "\n"
+        + "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O *";
+
+    @Test
+    public void testSnapshot() {
+        final ChessGame game = new ChessGame();
+        game.loadPgnString(PGN);
+        final ChessGame copy = new ChessGame();
+        copy.loadSnapshot(game.toSnapshot(), null);
+        Assert.assertEquals(game.getCurrentBoard().toFenString(), copy.getCurrentBoard().toFenString());
+        Assert.assertEquals(game.getMoveCount(), copy.getMoveCount());
+        Assert.assertEquals(game.getMoveList(), copy.getMoveList());
+        Assert.assertEquals(game.toPgnString(), copy.toPgnString());
+        Assert.assertEquals(game.getTurns().size(), copy.getTurns().size());
+    }
+
+    @Test
+    public void testSnapshotRepetition() {
+        final ChessGame game = new ChessGame();
+        game.initialize();
+        for (String it : new String[] {"Nf3", "Nf6", "Ng1", "Ng8", "Nf3", "Nf6"}) {
+            game.move(game.getCurrentTurn().getMoveTexts().get(it));
+        }
+        final ChessGame copy = new ChessGame();
+        copy.loadSnapshot(game.toSnapshot(), null);
+        copy.move(copy.getCurrentTurn().getMoveTexts().get("Ng1"));
+        Assert.assertFalse(copy.getCurrentTurn().getState().isGameOver());
+        copy.move(copy.getCurrentTurn().getMoveTexts().get("Ng8"));
+        Assert.assertEquals(ChessTurnState.DRAW_BY_REPETITION, copy.getCurrentTurn().getState());
+    }
+
+    @Test
+    public void testBinary() {
+        final ChessGame game = new ChessGame();
+        game.loadPgnString(PGN);
+        game.getCurrentTurn().resign(ChessColor.WHITE);
+        final byte[] data = game.toBinary();
+        final ChessGame copy = new ChessGame();
+        copy.loadBinary(data);
+        Assert.assertEquals(game.getCurrentBoard().toFenString(), copy.getCurrentBoard().toFenString());
+        Assert.assertEquals(game.getMoveList(), copy.getMoveList());
+        Assert.assertEquals(ChessTurnState.RESIGNATION, copy.getCurrentTurn().getState());
+        Assert.assertEquals(ChessColor.BLACK, copy.getCurrentTurn().getWinner());
+        Assert.assertEquals(game.toPgnString(), copy.toPgnString());
+    }
+
+    @Test
+    public void testPgnReader() throws IOException {
+        final String pgn = PGN + "\n\n"
+            + "[Event \"Second\"]\n"
+            + "[White \"Carol\"]\n"
+            + "\n"
+            + "1.d4 {A comment} d5 (1... Nf6 2. c4) 2. c4! $1 e6 ; Rest of line\n"
+            + "3. Nc3 Nf6 1-0\n"
+            + "\n"
+            + "1. e4 Ke7 2. d4 *\n"
+            + "\n"
+            + "1. f3 e5 2. g4 Qh4 0-1\n";
+        try (ChessPgnReader reader = new ChessPgnReader(new StringReader(pgn))) {
+            final ChessGame first = reader.readGame();
+            Assert.assertEquals("Alice", first.getWhiteName());
+            Assert.assertEquals(16, first.getMoveCount());
+            final ChessGame second = reader.readGame();
+            Assert.assertEquals("Second", second.getEventName());
+            Assert.assertEquals("Carol", second.getWhiteName());
+            Assert.assertEquals(6, second.getMoveCount());
+            Assert.assertThrows(IllegalArgumentException.class, reader::readGame);
+            final ChessGame fourth = reader.readGame();
+            Assert.assertEquals(ChessTurnState.CHECKMATE, fourth.getCurrentTurn().getState());
+            Assert.assertNull(reader.readGame());
+        }
+    }
+
+    @Test
+    public void testPgnReaderMaxPly() throws IOException {
+        // The illegal move after the limit is never parsed
+        final String pgn = PGN + "\n\n"
+            + "1. d4 d5 2. c4 Zz9 3. Nc3 *\n";
+        try (ChessPgnReader reader = new ChessPgnReader(new StringReader(pgn))) {
+            reader.setMaxPly(3);
+            final ChessGame first = reader.readGame();
+            Assert.assertEquals("Alice", first.getWhiteName());
+            Assert.assertEquals(3, first.getMoveCount());
+            final ChessGame second = reader.readGame();
+            Assert.assertEquals(3, second.getMoveCount());
+            Assert.assertNull(reader.readGame());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.cavetale.chess.net;
+
+import com.cavetale.chess.board.ChessGame;
+import com.cavetale.chess.board.ChessPgnReader;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessGameHtmlTest {
+    private static ChessGame game() throws IOException {
+        final String pgn = "[Event \"Club & Cup <Final>\"]\n"
+            + "[White \"<script>alert(1)</script>\"]\n"
+            + "[Black \"Bob \\\"The Rook\\\"\"]\n"
+            + "\n"
+            + "1. e4 e5 2. Nf3 *\n";
+        try (ChessPgnReader reader = new ChessPgnReader(new StringReader(pgn))) {
+            return reader.readGame();
+        }
+    }
+
+    @Test
+    public void testPlyClamp() throws IOException {
+        final ChessGame game = game();
+        final String startFen = game.getTurns().get(0).getBoard().toFenString();
+        final String endFen = game.getCurrentBoard().toFenString();
+        final String before = ChessGameHtml.render(game, -5);
+        Assert.assertTrue(before.contains("<code>" + startFen + "</code>"));
+        Assert.assertFalse(before.contains("class=\"current\""));
+        final String after = ChessGameHtml.render(game, 99);
+        Assert.assertTrue(after.contains("<code>" + endFen + "</code>"));
+        Assert.assertTrue(after.contains("<a href=\"?ply=3\" class=\"current\">Nf3</a>"));
+        Assert.assertTrue(after.contains("<a href=\"?ply=3\">Next &rsaquo;</a>"));
+    }
+
+    @Test
+    public void testEscape() throws IOException {
+        final String html = ChessGameHtml.render(game(), 0);
+        Assert.assertFalse(html.contains("<script>"));
+        Assert.assertTrue(html.contains("<h1>&lt;script&gt;alert(1)&lt;/script&gt; vs Bob &quot;The Rook&quot;</h1>"));
+        Assert.assertTrue(html.contains("<p>Club &amp; Cup &lt;Final&gt;, "));
+        Assert.assertEquals("", ChessGameHtml.escape(null));
+    }
+
+    @Test
+    public void testMoveLinks() throws IOException {
+        final String html = ChessGameHtml.render(game(), 1);
+        Assert.assertTrue(html.contains("1. <a href=\"?ply=1\" class=\"current\">e4</a> "
+                                        + "<a href=\"?ply=2\">e5</a> "
+                                        + "2. <a href=\"?ply=3\">Nf3</a> "));
+        Assert.assertTrue(html.contains("<a href=\"?ply=0\">&lsaquo; Back</a>"));
+        Assert.assertTrue(html.contains("<a href=\"?ply=2\">Next &rsaquo;</a>"));
+        Assert.assertTrue(html.contains("<a href=\"?pgn\">PGN</a>"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.cavetale.chess.net;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessColor;
+import com.cavetale.chess.board.ChessMove;
+import com.cavetale.chess.board.ChessSquare;
+import com.cavetale.chess.board.ChessTurnState;
+import com.cavetale.chess.spectate.ChessSnapshot;
+import com.cavetale.chess.spectate.ChessSnapshotPublisher;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessReplicationTest {
+    private static final String E4_FEN = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+
+    private static ChessSnapshot start(String boardId, long sequence) {
+        return new ChessSnapshot(boardId, sequence, ChessBoard.FEN_START, null, ChessTurnState.PLAY,
+                                 "White", "Black", 60_000L, 60_000L, ChessColor.WHITE, 1000L);
+    }
+
+    private static ChessSnapshot e4(String boardId, long sequence) {
+        return new ChessSnapshot(boardId, sequence, E4_FEN, new ChessMove(ChessSquare.E2, ChessSquare.E4), ChessTurnState.PLAY,
+                                 "White", "Black", 59_000L, 60_000L, ChessColor.BLACK, 2000L);
+    }
+
+    @Test
+    public void testCodec() {
+        final ChessSnapshot snapshot = start("world/board", 1);
+        final ChessReplicationCodec.Message message = ChessReplicationCodec.decode(ChessReplicationCodec.encodeSnapshot("a", snapshot));
+        Assert.assertEquals(ChessReplicationCodec.SNAPSHOT, message.type());
+        Assert.assertEquals("a", message.serverName());
+        Assert.assertEquals(snapshot, message.snapshot());
+        final byte[] bytes = ChessReplicationCodec.encodeMove("a", e4("world/board", 2));
+        Assert.assertTrue(bytes.length < 48);
+        final ChessReplicationCodec.Message move = ChessReplicationCodec.decode(bytes);
+        Assert.assertEquals(ChessReplicationCodec.MOVE, move.type());
+        Assert.assertEquals(e4("world/board", 2), ChessReplicationCodec.applyMove(snapshot, move.snapshot()));
+        // Out of sequence
+        Assert.assertNull(ChessReplicationCodec.applyMove(start("world/board", 0), move.snapshot()));
+        final ChessReplicationCodec.Message remove = ChessReplicationCodec.decode(ChessReplicationCodec.encodeRemove("a", "world/board", 2, 3000L));
+        Assert.assertEquals(ChessReplicationCodec.REMOVE, remove.type());
+        Assert.assertEquals("world/board", remove.snapshot().boardId());
+        Assert.assertEquals(3000L, remove.snapshot().time());
+    }
+
+    @Test
+    public void testMemoryBus() throws InterruptedException {
+        final ChessMemoryBus bus = new ChessMemoryBus();
+        final ChessSnapshotPublisher publisherA = new ChessSnapshotPublisher();
+        final ChessSnapshotPublisher publisherB = new ChessSnapshotPublisher();
+        final ChessReplication a = new ChessReplication("a", bus, publisherA, Logger.getAnonymousLogger());
+        final ChessReplication b = new ChessReplication("b", bus, publisherB, Logger.getAnonymousLogger());
+        a.enable();
+        b.enable();
+        try {
+            final List<byte[]> messages = new ArrayList<>();
+            bus.subscribe(messages::add);
+            publisherA.publish(start("world/board", 1));
+            publisherA.flush();
+            awaitSequence(publisherB, "a:world/board", 1);
+            publisherA.publish(e4("world/board", 2));
+            publisherA.flush();
+            awaitSequence(publisherB, "a:world/board", 2);
+            Assert.assertEquals(E4_FEN, publisherB.getLatest("a:world/board").fen());
+            Assert.assertTrue(b.isRemote("a:world/board"));
+            // B does not send the mirror back
+            publisherB.flush();
+            Thread.sleep(50L);
+            Assert.assertEquals(2, messages.size());
+            Assert.assertEquals(ChessReplicationCodec.MOVE, ChessReplicationCodec.decode(messages.get(1)).type());
+        } finally {
+            a.disable();
+            b.disable();
+        }
+    }
+
+    @Test
+    public void testRemove() throws InterruptedException {
+        final ChessMemoryBus bus = new ChessMemoryBus();
+        final ChessSnapshotPublisher publisherA = new ChessSnapshotPublisher();
+        final ChessSnapshotPublisher publisherB = new ChessSnapshotPublisher();
+        final ChessReplication a = new ChessReplication("a", bus, publisherA, Logger.getAnonymousLogger());
+        final ChessReplication b = new ChessReplication("b", bus, publisherB, Logger.getAnonymousLogger());
+        a.enable();
+        b.enable();
+        try {
+            publisherA.publish(start("world/board", 1));
+            publisherA.publish(start("world/other", 1));
+            publisherA.flush();
+            awaitSequence(publisherB, "a:world/board", 1);
+            awaitSequence(publisherB, "a:world/other", 1);
+            publisherA.clear("world/board");
+            awaitCleared(publisherB, "a:world/board");
+            Assert.assertFalse(b.isRemote("a:world/board"));
+            Assert.assertTrue(b.isRemote("a:world/other"));
+            // Disable removes the rest
+            a.disable();
+            awaitCleared(publisherB, "a:world/other");
+        } finally {
+            a.disable();
+            b.disable();
+        }
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        final ChessMemoryBus bus = new ChessMemoryBus();
+        final ChessSnapshotPublisher publisher = new ChessSnapshotPublisher();
+        final ChessReplication b = new ChessReplication("b", bus, publisher, Logger.getAnonymousLogger());
+        b.enable();
+        try {
+            bus.publish(ChessReplicationCodec.encodeSnapshot("a", start("world/board", 1)));
+            awaitSequence(publisher, "a:world/board", 1);
+            final long now = System.currentTimeMillis();
+            b.expire(now);
+            Assert.assertTrue(b.isRemote("a:world/board"));
+            b.expire(now + ChessReplication.EXPIRE_SECONDS * 1000L);
+            Assert.assertFalse(b.isRemote("a:world/board"));
+            Assert.assertNull(publisher.getLatest("a:world/board"));
+        } finally {
+            b.disable();
+        }
+    }
+
+    @Test
+    public void testFileBus() throws IOException {
+        final File file = File.createTempFile("replication", ".bin");
+        file.deleteOnExit();
+        final ChessFileBus writer = new ChessFileBus(file);
+        final ChessFileBus reader = new ChessFileBus(file);
+        try {
+            final List<byte[]> received = new ArrayList<>();
+            reader.subscribe(received::add);
+            writer.publish(new byte[] {1, 2, 3});
+            writer.publish(new byte[0]);
+            Assert.assertEquals(2, reader.poll());
+            Assert.assertEquals(0, reader.poll());
+            Assert.assertArrayEquals(new byte[] {1, 2, 3}, received.get(0));
+            Assert.assertEquals(0, received.get(1).length);
+        } finally {
+            writer.close();
+            reader.close();
+        }
+    }
+
+    private static void awaitCleared(ChessSnapshotPublisher publisher, String boardId) throws InterruptedException {
+        for (int i = 0; i < 200; i += 1) {
+            if (publisher.getLatest(boardId) == null) return;
+            Thread.sleep(10L);
+        }
+        Assert.fail("Timed out waiting for " + boardId + " to be cleared");
+    }
+
+    private static void awaitSequence(ChessSnapshotPublisher publisher, String boardId, long sequence) throws InterruptedException {
+        for (int i = 0; i < 200; i += 1) {
+            final ChessSnapshot snapshot = publisher.getLatest(boardId);
+            if (snapshot != null && snapshot.sequence() >= sequence) return;
+            Thread.sleep(10L);
+        }
+        Assert.fail("Timed out waiting for " + boardId + " #" + sequence);
+    }
+}
@@ -0,0 +1,156 @@
+package com.cavetale.chess.net;
+
+import com.cavetale.chess.board.ChessGame;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Run imports against a stub server on localhost.
+ */
+public final class LichessImportTest {
+    private static final Logger LOGGER = Logger.getLogger("LichessImportTest");
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+
+    private String start(HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/import", handler);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void stop() {
+        if (server == null) return;
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static ChessGame game() {
+        final ChessGame game = new ChessGame();
+        game.initialize();
+        return game;
+    }
+
+    /**
+     * A rate limit and a server error are retried, then the URL of
+     * the third response is passed on.
+     */
+    @Test
+    public void testRetry() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        final String endpoint = start(exchange -> {
+                switch (requests.incrementAndGet()) {
+                case 1:
+                    exchange.getResponseHeaders().add("Retry-After", "0");
+                    respond(exchange, 429, "");
+                    break;
+                case 2:
+                    respond(exchange, 503, "");
+                    break;
+                default:
+                    respond(exchange, 200, "{\"url\":\"https://lichess.org/abcdefgh\"}");
+                    break;
+                }
+            });
+        final LichessImport lichessImport = new LichessImport(endpoint, 1, LOGGER, Runnable::run);
+        lichessImport.setRetryMillis(10L);
+        final List<String> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        lichessImport.submit(game(), url -> {
+                results.add(String.valueOf(url));
+                done.countDown();
+            });
+        Assert.assertTrue(done.await(10L, TimeUnit.SECONDS));
+        Assert.assertEquals(3, requests.get());
+        Assert.assertEquals(List.of("https://lichess.org/abcdefgh"), results);
+        Assert.assertEquals(0, lichessImport.getInFlight());
+    }
+
+    /**
+     * The import gives up after the last attempt and calls back with
+     * null.
+     */
+    @Test
+    public void testGiveUp() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        final String endpoint = start(exchange -> {
+                requests.incrementAndGet();
+                respond(exchange, 500, "");
+            });
+        final LichessImport lichessImport = new LichessImport(endpoint, 1, LOGGER, Runnable::run);
+        lichessImport.setRetryMillis(10L);
+        final List<String> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        lichessImport.submit(game(), url -> {
+                results.add(String.valueOf(url));
+                done.countDown();
+            });
+        Assert.assertTrue(done.await(10L, TimeUnit.SECONDS));
+        Assert.assertEquals(LichessImport.MAX_ATTEMPTS, requests.get());
+        Assert.assertEquals(List.of("null"), results);
+    }
+
+    /**
+     * No more than maxInFlight requests reach the server at once, and
+     * the waiting imports are sent when a slot is free.
+     */
+    @Test
+    public void testInFlightLimit() throws Exception {
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger highest = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch arrived = new CountDownLatch(2);
+        final String endpoint = start(exchange -> {
+                highest.accumulateAndGet(current.incrementAndGet(), Math::max);
+                arrived.countDown();
+                try {
+                    release.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                current.decrementAndGet();
+                respond(exchange, 200, "{\"url\":\"https://lichess.org/abcdefgh\"}");
+            });
+        final LichessImport lichessImport = new LichessImport(endpoint, 2, LOGGER, Runnable::run);
+        final int count = 5;
+        final CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i += 1) {
+            lichessImport.submit(game(), url -> done.countDown());
+        }
+        Assert.assertTrue(arrived.await(10L, TimeUnit.SECONDS));
+        Assert.assertEquals(2, lichessImport.getInFlight());
+        Assert.assertEquals(count - 2, lichessImport.getWaiting());
+        release.countDown();
+        Assert.assertTrue(done.await(10L, TimeUnit.SECONDS));
+        Assert.assertEquals(2, highest.get());
+        Assert.assertEquals(0, lichessImport.getInFlight());
+        Assert.assertEquals(0, lichessImport.getWaiting());
+    }
+}
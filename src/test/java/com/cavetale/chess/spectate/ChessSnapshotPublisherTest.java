@@ -0,0 +1,61 @@
+package com.cavetale.chess.spectate;
+
+import com.cavetale.chess.board.ChessBoard;
+import com.cavetale.chess.board.ChessTurnState;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ChessSnapshotPublisherTest {
+    private static ChessSnapshot snapshot(String boardId, long sequence) {
+        return new ChessSnapshot(boardId, sequence, ChessBoard.FEN_START, null, ChessTurnState.PLAY,
+                                 "White", "Black", 60_000L, 60_000L, null, 0L);
+    }
+
+    @Test
+    public void testCoalescing() {
+        final ChessSnapshotPublisher publisher = new ChessSnapshotPublisher();
+        final List<Long> received = new ArrayList<>();
+        publisher.subscribe("a", Runnable::run, s -> received.add(s.sequence()));
+        publisher.publish(snapshot("a", 1));
+        publisher.publish(snapshot("a", 2));
+        publisher.publish(snapshot("b", 1));
+        Assert.assertEquals(2, publisher.flush());
+        Assert.assertEquals(List.of(2L), received);
+        Assert.assertEquals(0, publisher.flush());
+        Assert.assertEquals(List.of(2L), received);
+    }
+
+    @Test
+    public void testSlowSubscriber() {
+        final ChessSnapshotPublisher publisher = new ChessSnapshotPublisher();
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor slow = tasks::add;
+        final List<Long> received = new ArrayList<>();
+        publisher.subscribeAll(slow, s -> received.add(s.sequence()));
+        for (long i = 1; i <= 5; i += 1) {
+            publisher.publish(snapshot("a", i));
+            publisher.flush();
+        }
+        // Only one delivery was ever scheduled, and it sees the latest
+        Assert.assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        Assert.assertEquals(List.of(5L), received);
+    }
+
+    @Test
+    public void testLateSubscriber() {
+        final ChessSnapshotPublisher publisher = new ChessSnapshotPublisher();
+        publisher.publish(snapshot("a", 7));
+        publisher.flush();
+        final List<Long> received = new ArrayList<>();
+        final ChessSnapshotPublisher.Subscription subscription = publisher.subscribe("a", Runnable::run, s -> received.add(s.sequence()));
+        Assert.assertEquals(List.of(7L), received);
+        subscription.cancel();
+        publisher.publish(snapshot("a", 8));
+        publisher.flush();
+        Assert.assertEquals(List.of(7L), received);
+    }
+}
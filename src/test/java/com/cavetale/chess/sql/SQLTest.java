@@ -7,5 +7,6 @@ public final class SQLTest {
     @Test
     public void test() {
         System.out.println(SQLDatabase.testTableCreation(SQLChessGame.class));
+        System.out.println(SQLDatabase.testTableCreation(SQLGameAnalysis.class));
     }
 }